@@ -7,6 +7,28 @@ import java.util.UUID;
 
 public interface GenericController {
 
+    default String gerarETag(Long versao){
+        return "\"" + versao + "\"";
+    }
+
+    // comparação fraca, como pede o If-None-Match
+    default boolean etagCorresponde(String ifNoneMatch, String etag){
+        if(ifNoneMatch == null){
+            return false;
+        }
+
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if(valor.startsWith("W/")){
+                valor = valor.substring(2);
+            }
+            if(valor.equals("*") || valor.equals(etag)){
+                return true;
+            }
+        }
+        return false;
+    }
+
     default URI gerarHeaderLocation(UUID id){
         return ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -1,18 +1,30 @@
 package io.github.cursodsousa.libraryapi.controller;
 
 import io.github.cursodsousa.libraryapi.controller.dto.CadastroLivroDTO;
+import io.github.cursodsousa.libraryapi.controller.dto.ModoPaginacao;
+import io.github.cursodsousa.libraryapi.controller.dto.PaginaCursorDTO;
 import io.github.cursodsousa.libraryapi.controller.dto.ResultadoPesquisaLivroDTO;
 import io.github.cursodsousa.libraryapi.controller.mappers.LivroMapper;
+import io.github.cursodsousa.libraryapi.exceptions.CampoInvalidoException;
 import io.github.cursodsousa.libraryapi.model.GeneroLivro;
 import io.github.cursodsousa.libraryapi.model.Livro;
+import io.github.cursodsousa.libraryapi.repository.projections.ResumoLivro;
+import io.github.cursodsousa.libraryapi.repository.specs.CursorLivro;
+import io.github.cursodsousa.libraryapi.repository.specs.FiltroPesquisaLivro;
 import io.github.cursodsousa.libraryapi.service.LivroService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -34,14 +46,30 @@ public class LivroController implements GenericController {
         return ResponseEntity.created(url).build();
     }
 
+    // 304 quando o If-None-Match tem a versão atual; se a versão já é conhecida, o livro nem é consultado
     @GetMapping("{id}")
     @PreAuthorize("hasAnyRole('OPERADOR', 'GERENTE')")
     public ResponseEntity<ResultadoPesquisaLivroDTO> obterDetalhes(
-            @PathVariable("id") String id){
-        return service.obterPorId(UUID.fromString(id))
+            @PathVariable("id") String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        var idLivro = UUID.fromString(id);
+
+        if(ifNoneMatch != null){
+            var etagConhecido = service.obterVersaoConhecida(idLivro).map(this::gerarETag);
+            if(etagConhecido.isPresent() && etagCorresponde(ifNoneMatch, etagConhecido.get())){
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etagConhecido.get()).build();
+            }
+        }
+
+        return service.obterPorId(idLivro)
                 .map(livro -> {
+                    var etag = gerarETag(livro.getVersao());
+                    if(etagCorresponde(ifNoneMatch, etag)){
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<ResultadoPesquisaLivroDTO>build();
+                    }
+
                     var dto = mapper.toDTO(livro);
-                    return ResponseEntity.ok(dto);
+                    return ResponseEntity.ok().eTag(etag).body(dto);
                 }).orElseGet( () -> ResponseEntity.notFound().build() );
     }
 
@@ -55,9 +83,12 @@ public class LivroController implements GenericController {
                 }).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // com o parâmetro busca, a pesquisa é textual (título e nome do autor) e os filtros são ignorados
     @GetMapping
     @PreAuthorize("hasAnyRole('OPERADOR', 'GERENTE')")
-    public ResponseEntity<Page<ResultadoPesquisaLivroDTO>> pesquisa(
+    public ResponseEntity<Object> pesquisa(
+            @RequestParam(value = "busca", required = false)
+            String busca,
             @RequestParam(value = "isbn", required = false)
             String isbn,
             @RequestParam(value = "titulo", required = false)
@@ -68,17 +99,66 @@ public class LivroController implements GenericController {
             GeneroLivro genero,
             @RequestParam(value = "ano-publicacao", required = false)
             Integer anoPublicacao,
+            @RequestParam(value = "data-publicacao-inicio", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate dataPublicacaoInicio,
+            @RequestParam(value = "data-publicacao-fim", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate dataPublicacaoFim,
+            @RequestParam(value = "preco-minimo", required = false)
+            BigDecimal precoMinimo,
+            @RequestParam(value = "preco-maximo", required = false)
+            BigDecimal precoMaximo,
+            @RequestParam(value = "paginacao", defaultValue = "PAGINA")
+            ModoPaginacao paginacao,
+            @RequestParam(value = "total-aproximado", defaultValue = "false")
+            boolean totalAproximado,
+            @RequestParam(value = "cursor", required = false)
+            String cursor,
             @RequestParam(value = "pagina", defaultValue = "0")
             Integer pagina,
             @RequestParam(value = "tamanho-pagina", defaultValue = "10")
             Integer tamanhoPagina
     ){
-        Page<Livro> paginaResultado = service.pesquisa(
-                isbn, titulo, nomeAutor, genero, anoPublicacao, pagina, tamanhoPagina);
-
-        Page<ResultadoPesquisaLivroDTO> resultado = paginaResultado.map(mapper::toDTO);
+        if(busca != null && !busca.isBlank()){
+            var resultado = service.pesquisaPorTexto(busca, pagina, tamanhoPagina).map(mapper::toDTO);
+            return ResponseEntity.ok(resultado);
+        }
+
+        var filtro = new FiltroPesquisaLivro(isbn, titulo, nomeAutor, genero, anoPublicacao,
+                dataPublicacaoInicio, dataPublicacaoFim, precoMinimo, precoMaximo);
+
+        return switch (paginacao) {
+            case PAGINA -> {
+                Page<ResumoLivro> paginaResultado = totalAproximado
+                        ? service.pesquisaComTotalAproximado(filtro, pagina, tamanhoPagina)
+                        : service.pesquisa(filtro, pagina, tamanhoPagina);
+
+                Page<ResultadoPesquisaLivroDTO> resultado = paginaResultado.map(mapper::toDTO);
+                yield ResponseEntity.ok(resultado);
+            }
+            case FATIA -> ResponseEntity.ok(service.pesquisaSemTotal(filtro, pagina, tamanhoPagina).map(mapper::toDTO));
+            case CURSOR -> {
+                Slice<ResumoLivro> fatia = service.pesquisaPorCursor(filtro, lerCursor(cursor), tamanhoPagina);
+                String proximoCursor = null;
+                if(fatia.hasNext()){
+                    ResumoLivro ultimo = fatia.getContent().get(fatia.getNumberOfElements() - 1);
+                    proximoCursor = new CursorLivro(ultimo.titulo(), ultimo.id()).codificar();
+                }
+                yield ResponseEntity.ok(new PaginaCursorDTO<>(fatia.map(mapper::toDTO).getContent(), proximoCursor));
+            }
+        };
+    }
 
-        return ResponseEntity.ok(resultado);
+    private CursorLivro lerCursor(String cursor){
+        if(cursor == null || cursor.isBlank()){
+            return null;
+        }
+        try {
+            return CursorLivro.decodificar(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new CampoInvalidoException("cursor", "Cursor inválido.");
+        }
     }
 
     @PutMapping("{id}")
@@ -0,0 +1,13 @@
+package io.github.cursodsousa.libraryapi.controller.dto;
+
+/**
+ * Paginação de GET /livros:
+ * PAGINA - número da página e total de livros (count);
+ * FATIA - número da página, sem o total;
+ * CURSOR - continua a partir do cursor da página anterior, sem offset e sem o total.
+ */
+public enum ModoPaginacao {
+    PAGINA,
+    FATIA,
+    CURSOR
+}
@@ -0,0 +1,10 @@
+package io.github.cursodsousa.libraryapi.controller.dto;
+
+import java.util.List;
+
+// proximoCursor é nulo na última página
+public record PaginaCursorDTO<T>(
+        List<T> conteudo,
+        String proximoCursor
+) {
+}
@@ -1,21 +1,54 @@
 package io.github.cursodsousa.libraryapi.controller.mappers;
 
+import io.github.cursodsousa.libraryapi.controller.dto.AutorDTO;
 import io.github.cursodsousa.libraryapi.controller.dto.CadastroLivroDTO;
 import io.github.cursodsousa.libraryapi.controller.dto.ResultadoPesquisaLivroDTO;
+import io.github.cursodsousa.libraryapi.exceptions.CampoInvalidoException;
+import io.github.cursodsousa.libraryapi.model.Autor;
 import io.github.cursodsousa.libraryapi.model.Livro;
 import io.github.cursodsousa.libraryapi.repository.AutorRepository;
+import io.github.cursodsousa.libraryapi.repository.projections.ResumoLivro;
+import io.github.cursodsousa.libraryapi.service.CacheExistenciaAutor;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.UUID;
+
 @Mapper(componentModel = "spring", uses = AutorMapper.class )
 public abstract class LivroMapper {
 
     @Autowired
     AutorRepository autorRepository;
 
-    @Mapping(target = "autor", expression = "java( autorRepository.findById(dto.idAutor()).orElse(null) )")
+    @Autowired
+    CacheExistenciaAutor existenciaAutor;
+
+    @Mapping(target = "autor", expression = "java( referenciaAutor(dto.idAutor()) )")
     public abstract Livro toEntity(CadastroLivroDTO dto);
 
     public abstract ResultadoPesquisaLivroDTO toDTO(Livro livro);
+
+    // resultado da pesquisa, o autor já vem na mesma linha
+    public ResultadoPesquisaLivroDTO toDTO(ResumoLivro resumo){
+        AutorDTO autor = resumo.idAutor() == null ? null : new AutorDTO(
+                resumo.idAutor(), resumo.nomeAutor(), resumo.dataNascimentoAutor(), resumo.nacionalidadeAutor());
+
+        return new ResultadoPesquisaLivroDTO(
+                resumo.id(),
+                resumo.isbn(),
+                resumo.titulo(),
+                resumo.dataPublicacao(),
+                resumo.genero(),
+                resumo.preco(),
+                autor);
+    }
+
+    // o livro só precisa da chave do autor: referência lazy, sem carregar o autor
+    protected Autor referenciaAutor(UUID idAutor){
+        if(!existenciaAutor.existe(idAutor)){
+            throw new CampoInvalidoException("idAutor", "Autor não encontrado.");
+        }
+        return autorRepository.getReferenceById(idAutor);
+    }
 }
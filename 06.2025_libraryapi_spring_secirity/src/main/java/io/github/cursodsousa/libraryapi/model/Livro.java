@@ -14,7 +14,7 @@ import java.util.UUID;
 @Entity
 @Table(name = "livro")
 @Data
-@ToString(exclude = "autor")
+@ToString(exclude = {"autor", "usuario"})
 @EntityListeners(AuditingEntityListener.class)
 public class Livro {
 
@@ -54,7 +54,13 @@ public class Livro {
     @Column(name = "data_atualizacao")
     private LocalDateTime dataAtualizacao;
 
-    @ManyToOne
+    // lock otimista, também é o ETag de GET /livros/{id}
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Long versao;
+
+    // só auditoria, não é lido nas consultas de livros
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_usuario")
     private Usuario usuario;
 }
@@ -21,7 +21,7 @@ import java.util.UUID;
 /**
  * @see LivroRepositoryTest
  */
-public interface LivroRepository extends JpaRepository<Livro, UUID>, JpaSpecificationExecutor<Livro> {
+public interface LivroRepository extends JpaRepository<Livro, UUID>, JpaSpecificationExecutor<Livro>, LivroRepositoryCustom {
 
     Page<Livro> findByAutor(Autor autor, Pageable pageable);
 
@@ -92,4 +92,8 @@ public interface LivroRepository extends JpaRepository<Livro, UUID>, JpaSpecific
     void updateDataPublicacao(LocalDate novaData);
 
     boolean existsByAutor(Autor autor);
+
+    // estimativa de linhas do planner (atualizada pelo autovacuum/analyze), -1 se a tabela nunca foi analisada
+    @Query(value = "select cast(reltuples as bigint) from pg_class where oid = cast('livro' as regclass)", nativeQuery = true)
+    long estimarTotal();
 }
@@ -0,0 +1,30 @@
+package io.github.cursodsousa.libraryapi.repository;
+
+import io.github.cursodsousa.libraryapi.model.Livro;
+import io.github.cursodsousa.libraryapi.repository.projections.ResumoLivro;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Pesquisas de livros que retornam só as colunas do resultado, em uma consulta com o autor (mais o count, se houver).
+ */
+public interface LivroRepositoryCustom {
+
+    /**
+     * Como o findAll(specs, pageable); o count não é feito quando a página já mostra o total (primeira ou última).
+     */
+    Page<ResumoLivro> pesquisarResumos(Specification<Livro> specs, Pageable pageable);
+
+    /**
+     * Sem o count: busca um livro a mais para saber se há próxima página.
+     */
+    Slice<ResumoLivro> pesquisarResumosSemTotal(Specification<Livro> specs, Pageable pageable);
+
+    /**
+     * Busca textual sobre a coluna busca (título + nome do autor), mantida por trigger e indexada com GIN.
+     * Ordenada pela relevância: o título pesa mais que o nome do autor. A coluna e o índice estão em comandos-sql.txt.
+     */
+    Page<ResumoLivro> buscarPorTexto(String texto, Pageable pageable);
+}
@@ -0,0 +1,154 @@
+package io.github.cursodsousa.libraryapi.repository;
+
+import io.github.cursodsousa.libraryapi.model.Autor;
+import io.github.cursodsousa.libraryapi.model.GeneroLivro;
+import io.github.cursodsousa.libraryapi.model.Livro;
+import io.github.cursodsousa.libraryapi.repository.projections.ResumoLivro;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public class LivroRepositoryImpl implements LivroRepositoryCustom {
+
+    private static final String COLUNAS_RESUMO = """
+        l.id, l.isbn, l.titulo, l.data_publicacao, l.genero, l.preco,
+        a.id as id_autor, a.nome as nome_autor, a.data_nascimento as data_nascimento_autor,
+        a.nacionalidade as nacionalidade_autor
+    """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ResumoLivro> pesquisarResumos(Specification<Livro> specs, Pageable pageable) {
+        List<ResumoLivro> resumos = consultarResumos(specs, pageable, pageable.getPageSize());
+        return PageableExecutionUtils.getPage(resumos, pageable, () -> contar(specs));
+    }
+
+    @Override
+    public Slice<ResumoLivro> pesquisarResumosSemTotal(Specification<Livro> specs, Pageable pageable) {
+        List<ResumoLivro> resumos = consultarResumos(specs, pageable, pageable.getPageSize() + 1);
+
+        boolean temProxima = resumos.size() > pageable.getPageSize();
+        if(temProxima){
+            resumos = resumos.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(resumos, pageable, temProxima);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Page<ResumoLivro> buscarPorTexto(String texto, Pageable pageable) {
+        List<Tuple> linhas = entityManager.createNativeQuery("""
+                    select %s
+                    from livro l
+                    join autor a on a.id = l.id_autor,
+                    websearch_to_tsquery('portugues_sem_acento', :texto) q
+                    where l.busca @@ q
+                    order by ts_rank(l.busca, q) desc, l.id
+                """.formatted(COLUNAS_RESUMO), Tuple.class)
+                .setParameter("texto", texto)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        List<ResumoLivro> resumos = linhas.stream().map(this::resumo).toList();
+
+        return PageableExecutionUtils.getPage(resumos, pageable, () -> ((Number) entityManager.createNativeQuery("""
+                    select count(*)
+                    from livro l
+                    where l.busca @@ websearch_to_tsquery('portugues_sem_acento', :texto)
+                """)
+                .setParameter("texto", texto)
+                .getSingleResult()).longValue());
+    }
+
+    // select l.id, ..., a.nacionalidade from livro l left join autor a ... where <specs> order by ... offset ... limit ...
+    private List<ResumoLivro> consultarResumos(Specification<Livro> specs, Pageable pageable, int limite) {
+        var cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ResumoLivro> query = cb.createQuery(ResumoLivro.class);
+        Root<Livro> root = query.from(Livro.class);
+
+        query.where(specs.toPredicate(root, query, cb));
+        Join<Livro, Autor> autor = joinAutor(root);
+
+        query.select(cb.construct(ResumoLivro.class,
+                root.get("id"),
+                root.get("isbn"),
+                root.get("titulo"),
+                root.get("dataPublicacao"),
+                root.get("genero"),
+                root.get("preco"),
+                autor.get("id"),
+                autor.get("nome"),
+                autor.get("dataNascimento"),
+                autor.get("nacionalidade")));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    private long contar(Specification<Livro> specs) {
+        var cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Livro> root = query.from(Livro.class);
+
+        query.where(specs.toPredicate(root, query, cb));
+        query.select(cb.count(root));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // reaproveita o join do filtro por nome do autor, se houver, para não juntar o autor duas vezes
+    @SuppressWarnings("unchecked")
+    private Join<Livro, Autor> joinAutor(Root<Livro> root) {
+        return root.getJoins()
+                .stream()
+                .filter(join -> join.getAttribute().getName().equals("autor"))
+                .map(join -> (Join<Livro, Autor>) join)
+                .findFirst()
+                .orElseGet(() -> root.join("autor", JoinType.LEFT));
+    }
+
+    private ResumoLivro resumo(Tuple linha) {
+        return new ResumoLivro(
+                linha.get("id", UUID.class),
+                linha.get("isbn", String.class),
+                linha.get("titulo", String.class),
+                data(linha.get("data_publicacao")),
+                GeneroLivro.valueOf(linha.get("genero", String.class)),
+                linha.get("preco", BigDecimal.class),
+                linha.get("id_autor", UUID.class),
+                linha.get("nome_autor", String.class),
+                data(linha.get("data_nascimento_autor")),
+                linha.get("nacionalidade_autor", String.class));
+    }
+
+    // o tipo das colunas date na consulta nativa depende do driver
+    private LocalDate data(Object valor) {
+        if(valor instanceof Date date){
+            return date.toLocalDate();
+        }
+        return (LocalDate) valor;
+    }
+}
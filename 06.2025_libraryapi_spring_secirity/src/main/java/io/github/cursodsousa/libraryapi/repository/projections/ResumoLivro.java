@@ -0,0 +1,25 @@
+package io.github.cursodsousa.libraryapi.repository.projections;
+
+import io.github.cursodsousa.libraryapi.model.GeneroLivro;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Linha da pesquisa de livros: só as colunas de ResultadoPesquisaLivroDTO, lidas do livro e do autor na mesma consulta.
+ * Não é entidade, nada fica no contexto de persistência.
+ */
+public record ResumoLivro(
+        UUID id,
+        String isbn,
+        String titulo,
+        LocalDate dataPublicacao,
+        GeneroLivro genero,
+        BigDecimal preco,
+        UUID idAutor,
+        String nomeAutor,
+        LocalDate dataNascimentoAutor,
+        String nacionalidadeAutor
+) {
+}
@@ -0,0 +1,27 @@
+package io.github.cursodsousa.libraryapi.repository.specs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Posição da paginação por cursor de GET /livros: título e id do último livro da página, na ordenação (titulo, id).
+ * Vai para o cliente codificado em Base64 (id:titulo).
+ */
+public record CursorLivro(String titulo, UUID id) {
+
+    public String codificar(){
+        var valor = id + ":" + titulo;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorLivro decodificar(String cursor){
+        var valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        // o id não tem ':', o título pode ter
+        int separador = valor.indexOf(':');
+        if(separador < 0){
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+        return new CursorLivro(valor.substring(separador + 1), UUID.fromString(valor.substring(0, separador)));
+    }
+}
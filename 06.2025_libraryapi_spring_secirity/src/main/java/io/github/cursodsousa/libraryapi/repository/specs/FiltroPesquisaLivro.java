@@ -0,0 +1,28 @@
+package io.github.cursodsousa.libraryapi.repository.specs;
+
+import io.github.cursodsousa.libraryapi.model.GeneroLivro;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Filtros de GET /livros, todos opcionais.
+ */
+public record FiltroPesquisaLivro(
+        String isbn,
+        String titulo,
+        String nomeAutor,
+        GeneroLivro genero,
+        Integer anoPublicacao,
+        LocalDate dataPublicacaoInicio,
+        LocalDate dataPublicacaoFim,
+        BigDecimal precoMinimo,
+        BigDecimal precoMaximo
+) {
+
+    public boolean vazio(){
+        return isbn == null && titulo == null && nomeAutor == null && genero == null && anoPublicacao == null
+                && dataPublicacaoInicio == null && dataPublicacaoFim == null
+                && precoMinimo == null && precoMaximo == null;
+    }
+}
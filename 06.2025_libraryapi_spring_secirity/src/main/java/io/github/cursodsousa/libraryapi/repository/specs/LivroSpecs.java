@@ -6,6 +6,10 @@ import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
 public class LivroSpecs {
 
     public static Specification<Livro> isbnEqual(String isbn){
@@ -23,10 +27,36 @@ public class LivroSpecs {
     }
 
     public static Specification<Livro> anoPublicacaoEqual(Integer anoPublicacao){
-        // and to_char(data_publicacao, 'YYYY') = :anoPublicacao
-        return (root, query, cb) ->
-                cb.equal( cb.function("to_char", String.class,
-                        root.get("dataPublicacao"), cb.literal("YYYY")),anoPublicacao.toString());
+        // and data_publicacao >= :ano-01-01 and data_publicacao < :ano+1-01-01
+        // intervalo sobre a própria coluna (e não to_char), para usar o índice de data_publicacao
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("dataPublicacao"), LocalDate.of(anoPublicacao, 1, 1)),
+                cb.lessThan(root.get("dataPublicacao"), LocalDate.of(anoPublicacao + 1, 1, 1)));
+    }
+
+    public static Specification<Livro> dataPublicacaoAPartirDe(LocalDate inicio){
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dataPublicacao"), inicio);
+    }
+
+    public static Specification<Livro> dataPublicacaoAte(LocalDate fim){
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("dataPublicacao"), fim);
+    }
+
+    public static Specification<Livro> precoMinimo(BigDecimal preco){
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("preco"), preco);
+    }
+
+    public static Specification<Livro> precoMaximo(BigDecimal preco){
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("preco"), preco);
+    }
+
+    public static Specification<Livro> depoisDe(CursorLivro cursor){
+        // titulo >= :titulo and (titulo > :titulo or id > :id), o primeiro termo permite usar o índice (titulo, id)
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("titulo"), cursor.titulo()),
+                cb.or(
+                        cb.greaterThan(root.get("titulo"), cursor.titulo()),
+                        cb.greaterThan(root.<UUID>get("id"), cursor.id())));
     }
 
     public static Specification<Livro> nomeAutorLike(String nome){
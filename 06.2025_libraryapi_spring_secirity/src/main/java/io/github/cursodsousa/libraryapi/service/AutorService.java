@@ -23,6 +23,7 @@ public class AutorService {
     private final AutorRepository repository;
     private final AutorValidator validator;
     private final LivroRepository livroRepository;
+    private final CacheExistenciaAutor existenciaAutor;
 
     @Autowired
     private SecurityService securityService;
@@ -33,7 +34,9 @@ public class AutorService {
         // salvando auditoria
         autor.setUsuario(securityService.obterUsuarioLogado());
 
-        return repository.save(autor);
+        Autor autorSalvo = repository.save(autor);
+        existenciaAutor.registrar(autorSalvo.getId());
+        return autorSalvo;
     }
 
     public void atualizar(Autor autor){
@@ -54,6 +57,7 @@ public class AutorService {
                     "Não é permitido excluir um Autor que possui livros cadastrados!");
         }
         repository.delete(autor);
+        existenciaAutor.remover(autor.getId());
     }
 
     public List<Autor> pesquisa(String nome, String nacionalidade){
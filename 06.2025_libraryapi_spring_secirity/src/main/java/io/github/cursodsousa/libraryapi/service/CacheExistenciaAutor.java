@@ -0,0 +1,62 @@
+package io.github.cursodsousa.libraryapi.service;
+
+import io.github.cursodsousa.libraryapi.repository.AutorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ids de autores que sabidamente existem, para o cadastro de livros usar uma referência ao autor
+ * (getReferenceById) sem o select do autor a cada gravação.
+ * Só guarda os autores encontrados; os menos usados saem quando o limite é atingido.
+ * A exclusão de um autor em outra instância ainda é barrada pela foreign key de livro.id_autor.
+ */
+@Component
+public class CacheExistenciaAutor {
+
+    private final AutorRepository repository;
+    private final Map<UUID, Boolean> autores;
+
+    public CacheExistenciaAutor(
+            AutorRepository repository,
+            @Value("${application.autores.cache-existencia.tamanho-maximo:10000}") int tamanhoMaximo){
+        this.repository = repository;
+        this.autores = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> maisAntigo) {
+                return size() > tamanhoMaximo;
+            }
+        });
+    }
+
+    public boolean existe(UUID id){
+        if(id == null){
+            return false;
+        }
+
+        // get e não containsKey: só a leitura move o autor para o fim da ordem de uso
+        if(autores.get(id) != null){
+            return true;
+        }
+
+        boolean existe = repository.existsById(id);
+        if(existe){
+            autores.put(id, Boolean.TRUE);
+        }
+        return existe;
+    }
+
+    public void registrar(UUID id){
+        if(id != null){
+            autores.put(id, Boolean.TRUE);
+        }
+    }
+
+    public void remover(UUID id){
+        autores.remove(id);
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.cursodsousa.libraryapi.service;
+
+import io.github.cursodsousa.libraryapi.model.Livro;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Última versão conhecida de cada livro, para responder o GET condicional (If-None-Match) sem consultar o livro.
+ * O LivroService registra a versão de todo livro que lê ou grava.
+ * Só as gravações desta instância atualizam o índice, por isso cada versão vale apenas pela validade configurada;
+ * depois dela, ou quando o limite de livros é atingido (saem os menos usados), o livro volta a ser lido do banco.
+ */
+@Component
+public class IndiceVersaoLivro {
+
+    private final Map<UUID, Versao> versoes;
+    private final Duration validade;
+    private final Clock clock;
+
+    @Autowired
+    public IndiceVersaoLivro(
+            @Value("${application.livros.indice-versao.tamanho-maximo:10000}") int tamanhoMaximo,
+            @Value("${application.livros.indice-versao.validade:PT5M}") Duration validade){
+        this(tamanhoMaximo, validade, Clock.systemUTC());
+    }
+
+    IndiceVersaoLivro(int tamanhoMaximo, Duration validade, Clock clock){
+        this.validade = validade;
+        this.clock = clock;
+        this.versoes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Versao> maisAntigo) {
+                return size() > tamanhoMaximo;
+            }
+        });
+    }
+
+    public Optional<Long> obter(UUID id){
+        Versao versao = versoes.get(id);
+        if(versao == null){
+            return Optional.empty();
+        }
+
+        if(versao.expiraEm().isBefore(clock.instant())){
+            versoes.remove(id, versao);
+            return Optional.empty();
+        }
+        return Optional.of(versao.numero());
+    }
+
+    public void registrar(Livro livro){
+        if(livro.getId() != null && livro.getVersao() != null){
+            versoes.put(livro.getId(), new Versao(livro.getVersao(), clock.instant().plus(validade)));
+        }
+    }
+
+    public void remover(UUID id){
+        versoes.remove(id);
+    }
+
+    private record Versao(Long numero, Instant expiraEm){
+    }
+}
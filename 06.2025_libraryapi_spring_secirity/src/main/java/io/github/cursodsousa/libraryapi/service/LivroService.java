@@ -1,14 +1,19 @@
 package io.github.cursodsousa.libraryapi.service;
 
-import io.github.cursodsousa.libraryapi.model.GeneroLivro;
 import io.github.cursodsousa.libraryapi.model.Livro;
 import io.github.cursodsousa.libraryapi.repository.LivroRepository;
+import io.github.cursodsousa.libraryapi.repository.projections.ResumoLivro;
+import io.github.cursodsousa.libraryapi.repository.specs.CursorLivro;
+import io.github.cursodsousa.libraryapi.repository.specs.FiltroPesquisaLivro;
 import io.github.cursodsousa.libraryapi.security.SecurityService;
 import io.github.cursodsousa.libraryapi.validator.LivroValidator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
@@ -25,6 +30,10 @@ public class LivroService {
     private final LivroRepository repository;
     private final LivroValidator validator;
     private final SecurityService securityService;
+    private final IndiceVersaoLivro indiceVersao;
+
+    // ordenação estável das pesquisas, também é a chave da paginação por cursor
+    private static final Sort ORDENACAO = Sort.by("titulo", "id");
 
     public Livro salvar(Livro livro) {
         validator.validar(livro);
@@ -32,26 +41,67 @@ public class LivroService {
         //Salva auditoria
         livro.setUsuario(securityService.obterUsuarioLogado());
 
-        return repository.save(livro);
+        Livro livroSalvo = repository.save(livro);
+        indiceVersao.registrar(livroSalvo);
+        return livroSalvo;
     }
 
     public Optional<Livro> obterPorId(UUID id){
-        return repository.findById(id);
+        Optional<Livro> livro = repository.findById(id);
+        livro.ifPresent(indiceVersao::registrar);
+        return livro;
+    }
+
+    public Optional<Long> obterVersaoConhecida(UUID id){
+        return indiceVersao.obter(id);
     }
 
     public void deletar(Livro livro){
         repository.delete(livro);
+        indiceVersao.remover(livro.getId());
+    }
+
+    public Page<ResumoLivro> pesquisa(FiltroPesquisaLivro filtro, Integer pagina, Integer tamanhoPagina){
+        return repository.pesquisarResumos(criarSpecs(filtro), PageRequest.of(pagina, tamanhoPagina, ORDENACAO));
+    }
+
+    // sem o count: só informa se há uma próxima página
+    public Slice<ResumoLivro> pesquisaSemTotal(FiltroPesquisaLivro filtro, Integer pagina, Integer tamanhoPagina){
+        return repository.pesquisarResumosSemTotal(criarSpecs(filtro), PageRequest.of(pagina, tamanhoPagina, ORDENACAO));
+    }
+
+    /**
+     * Página com total aproximado: sem filtros, o total é a estimativa de linhas da tabela (estatísticas do PostgreSQL).
+     * Com filtros não há estimativa e o total é contado, a não ser na última página, onde ele já é conhecido.
+     */
+    public Page<ResumoLivro> pesquisaComTotalAproximado(FiltroPesquisaLivro filtro, Integer pagina, Integer tamanhoPagina){
+        Pageable pageRequest = PageRequest.of(pagina, tamanhoPagina, ORDENACAO);
+        Specification<Livro> specs = criarSpecs(filtro);
+        Slice<ResumoLivro> fatia = repository.pesquisarResumosSemTotal(specs, pageRequest);
+
+        long minimo = pageRequest.getOffset() + fatia.getNumberOfElements() + (fatia.hasNext() ? 1 : 0);
+        if(!fatia.hasNext() && (fatia.hasContent() || pagina == 0)){
+            return new PageImpl<>(fatia.getContent(), pageRequest, minimo);
+        }
+
+        long total = filtro.vazio() ? repository.estimarTotal() : -1;
+        if(total < 0){
+            total = repository.count(specs);
+        }
+        return new PageImpl<>(fatia.getContent(), pageRequest, Math.max(total, minimo));
     }
 
-     //isbn, titulo, nome autor, genero, ano de publicação
-    public Page<Livro> pesquisa(
-            String isbn,
-            String titulo,
-            String nomeAutor,
-            GeneroLivro genero,
-            Integer anoPublicacao,
-            Integer pagina,
-            Integer tamanhoPagina){
+    // keyset (titulo, id): sem offset, o custo não cresce com o número da página
+    public Slice<ResumoLivro> pesquisaPorCursor(FiltroPesquisaLivro filtro, CursorLivro cursor, Integer tamanhoPagina){
+        Specification<Livro> specs = criarSpecs(filtro);
+        if(cursor != null){
+            specs = specs.and(depoisDe(cursor));
+        }
+        return repository.pesquisarResumosSemTotal(specs, PageRequest.of(0, tamanhoPagina, ORDENACAO));
+    }
+
+    //isbn, titulo, nome autor, genero, ano de publicação, período de publicação, faixa de preço
+    private Specification<Livro> criarSpecs(FiltroPesquisaLivro filtro){
 
         // select * from livro where isbn = :isbn and nomeAutor =
 
@@ -64,30 +114,49 @@ public class LivroService {
         // select * from livro where 0 = 0
         Specification<Livro> specs = Specification.where((root, query, cb) -> cb.conjunction() );
 
-        if(isbn != null){
+        if(filtro.isbn() != null){
             // query = query and isbn = :isbn
-            specs = specs.and(isbnEqual(isbn));
+            specs = specs.and(isbnEqual(filtro.isbn()));
+        }
+
+        if(filtro.titulo() != null){
+            specs = specs.and(tituloLike(filtro.titulo()));
+        }
+
+        if(filtro.genero() != null){
+            specs = specs.and(generoEqual(filtro.genero()));
+        }
+
+        if(filtro.anoPublicacao() != null){
+            specs = specs.and(anoPublicacaoEqual(filtro.anoPublicacao()));
         }
 
-        if(titulo != null){
-            specs = specs.and(tituloLike(titulo));
+        if(filtro.dataPublicacaoInicio() != null){
+            specs = specs.and(dataPublicacaoAPartirDe(filtro.dataPublicacaoInicio()));
         }
 
-        if(genero != null){
-            specs = specs.and(generoEqual(genero));
+        if(filtro.dataPublicacaoFim() != null){
+            specs = specs.and(dataPublicacaoAte(filtro.dataPublicacaoFim()));
         }
 
-        if(anoPublicacao != null){
-            specs = specs.and(anoPublicacaoEqual(anoPublicacao));
+        if(filtro.precoMinimo() != null){
+            specs = specs.and(precoMinimo(filtro.precoMinimo()));
         }
 
-        if(nomeAutor != null){
-            specs = specs.and(nomeAutorLike(nomeAutor));
+        if(filtro.precoMaximo() != null){
+            specs = specs.and(precoMaximo(filtro.precoMaximo()));
         }
 
-        Pageable pageRequest = PageRequest.of(pagina, tamanhoPagina);
+        if(filtro.nomeAutor() != null){
+            specs = specs.and(nomeAutorLike(filtro.nomeAutor()));
+        }
+
+        return specs;
+    }
 
-        return repository.findAll(specs, pageRequest);
+    // busca textual no título e no nome do autor, os mais relevantes primeiro
+    public Page<ResumoLivro> pesquisaPorTexto(String texto, Integer pagina, Integer tamanhoPagina){
+        return repository.buscarPorTexto(texto, PageRequest.of(pagina, tamanhoPagina));
     }
 
     public void atualizar(Livro livro) {
@@ -96,6 +165,6 @@ public class LivroService {
         }
 
         validator.validar(livro);
-        repository.save(livro);
+        indiceVersao.registrar(repository.save(livro));
     }
 }
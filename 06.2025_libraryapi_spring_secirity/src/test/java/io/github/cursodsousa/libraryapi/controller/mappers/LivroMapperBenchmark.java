@@ -0,0 +1,109 @@
+package io.github.cursodsousa.libraryapi.controller.mappers;
+
+import io.github.cursodsousa.libraryapi.controller.dto.CadastroLivroDTO;
+import io.github.cursodsousa.libraryapi.model.Autor;
+import io.github.cursodsousa.libraryapi.model.GeneroLivro;
+import io.github.cursodsousa.libraryapi.model.Livro;
+import io.github.cursodsousa.libraryapi.repository.AutorRepository;
+import io.github.cursodsousa.libraryapi.repository.LivroRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Vazão de gravação de livros, uma transação por livro como nas requisições:
+ * autor carregado com findById (como era o mapper) x referência do mapper.
+ * Fica fora da suíte de testes, roda com {@code mvn test -Pbenchmark}.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Tag("benchmark")
+class LivroMapperBenchmark {
+
+    private static final int GRAVACOES = 1_000;
+
+    @Autowired
+    LivroMapper mapper;
+
+    @Autowired
+    AutorRepository autorRepository;
+
+    @Autowired
+    LivroRepository livroRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    Statistics statistics;
+
+    Autor autor;
+
+    @BeforeEach
+    void setUp(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        autor = new Autor();
+        autor.setNome("José");
+        autor.setNacionalidade("Brasileira");
+        autor.setDataNascimento(LocalDate.of(1951, 1, 31));
+        autor = autorRepository.save(autor);
+    }
+
+    @AfterEach
+    void tearDown(){
+        autorRepository.delete(autor);
+    }
+
+    // os livros gravados são excluídos ao fim de cada medição
+    @Test
+    void vazaoGravacao(){
+        var comFindById = medirGravacoes(dto -> {
+            Livro livro = mapper.toEntity(dto);
+            livro.setAutor(autorRepository.findById(dto.idAutor()).orElse(null));
+            return livro;
+        });
+        var comReferencia = medirGravacoes(mapper::toEntity);
+
+        System.out.printf("findById: %.0f gravações/s, %d statements%n", comFindById[0], (long) comFindById[1]);
+        System.out.printf("getReferenceById: %.0f gravações/s, %d statements%n", comReferencia[0], (long) comReferencia[1]);
+    }
+
+    private double[] medirGravacoes(Function<CadastroLivroDTO, Livro> toEntity){
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        var ids = new ArrayList<UUID>();
+        statistics.clear();
+        long inicio = System.nanoTime();
+
+        for (int i = 0; i < GRAVACOES; i++) {
+            ids.add(transactionTemplate.execute(status ->
+                    livroRepository.save(toEntity.apply(cadastro(autor.getId()))).getId()));
+        }
+
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        long statements = statistics.getPrepareStatementCount();
+        livroRepository.deleteAllById(ids);
+        return new double[]{ GRAVACOES / segundos, statements };
+    }
+
+    private CadastroLivroDTO cadastro(UUID idAutor){
+        var isbn = UUID.randomUUID().toString().substring(0, 20);
+        return new CadastroLivroDTO(
+                isbn, "Livro de teste", LocalDate.of(1980, 1, 2), GeneroLivro.FICCAO, BigDecimal.valueOf(100), idAutor);
+    }
+}
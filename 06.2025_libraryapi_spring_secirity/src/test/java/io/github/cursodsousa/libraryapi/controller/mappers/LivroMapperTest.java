@@ -0,0 +1,78 @@
+package io.github.cursodsousa.libraryapi.controller.mappers;
+
+import io.github.cursodsousa.libraryapi.controller.dto.CadastroLivroDTO;
+import io.github.cursodsousa.libraryapi.exceptions.CampoInvalidoException;
+import io.github.cursodsousa.libraryapi.model.Autor;
+import io.github.cursodsousa.libraryapi.model.GeneroLivro;
+import io.github.cursodsousa.libraryapi.model.Livro;
+import io.github.cursodsousa.libraryapi.repository.AutorRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class LivroMapperTest {
+
+    @Autowired
+    LivroMapper mapper;
+
+    @Autowired
+    AutorRepository autorRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    Autor autor;
+
+    @BeforeEach
+    void setUp(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        autor = new Autor();
+        autor.setNome("José");
+        autor.setNacionalidade("Brasileira");
+        autor.setDataNascimento(LocalDate.of(1951, 1, 31));
+        autor = autorRepository.save(autor);
+    }
+
+    @AfterEach
+    void tearDown(){
+        autorRepository.delete(autor);
+    }
+
+    @Test
+    void toEntitySemSelectDoAutorTest(){
+        mapper.toEntity(cadastro(autor.getId()));
+        statistics.clear();
+
+        Livro livro = mapper.toEntity(cadastro(autor.getId()));
+
+        assertEquals(autor.getId(), livro.getAutor().getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void toEntityAutorInexistenteTest(){
+        assertThrows(CampoInvalidoException.class, () -> mapper.toEntity(cadastro(UUID.randomUUID())));
+    }
+
+    private CadastroLivroDTO cadastro(UUID idAutor){
+        var isbn = UUID.randomUUID().toString().substring(0, 20);
+        return new CadastroLivroDTO(
+                isbn, "Livro de teste", LocalDate.of(1980, 1, 2), GeneroLivro.FICCAO, BigDecimal.valueOf(100), idAutor);
+    }
+}
@@ -3,9 +3,13 @@ package io.github.cursodsousa.libraryapi.repository;
 import io.github.cursodsousa.libraryapi.model.Autor;
 import io.github.cursodsousa.libraryapi.model.GeneroLivro;
 import io.github.cursodsousa.libraryapi.model.Livro;
+import io.github.cursodsousa.libraryapi.repository.specs.CursorLivro;
+import io.github.cursodsousa.libraryapi.repository.specs.LivroSpecs;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -177,6 +181,40 @@ class LivroRepositoryTest {
         resultado.forEach(System.out::println);
     }
 
+    @Test
+    void pesquisaPorAnoEFaixaDePrecoSpecsTest(){
+        var specs = LivroSpecs.anoPublicacaoEqual(1980)
+                .and(LivroSpecs.precoMinimo(BigDecimal.valueOf(50)))
+                .and(LivroSpecs.precoMaximo(BigDecimal.valueOf(200)));
+
+        List<Livro> resultado = repository.findAll(specs);
+        resultado.forEach(System.out::println);
+    }
+
+    @Test
+    void buscarPorTextoTest(){
+        // com outra flexão (plural): encontra "O roubo da casa assombrada"
+        var resultado = repository.buscarPorTexto("casas assombradas", PageRequest.of(0, 10));
+        resultado.forEach(System.out::println);
+    }
+
+    @Test
+    void pesquisaPorCursorSemCountTest(){
+        var ordenacao = Sort.by("titulo", "id");
+        var primeiraPagina = repository.pesquisarResumosSemTotal(
+                LivroSpecs.generoEqual(GeneroLivro.MISTERIO), PageRequest.of(0, 2, ordenacao));
+        primeiraPagina.forEach(System.out::println);
+
+        if(primeiraPagina.hasNext()){
+            var ultimo = primeiraPagina.getContent().get(1);
+            var cursor = new CursorLivro(ultimo.titulo(), ultimo.id());
+            var specs = LivroSpecs.generoEqual(GeneroLivro.MISTERIO).and(LivroSpecs.depoisDe(cursor));
+
+            System.out.println("Próxima página:");
+            repository.pesquisarResumosSemTotal(specs, PageRequest.of(0, 2, ordenacao)).forEach(System.out::println);
+        }
+    }
+
     @Test
     void deletePorGeneroTest(){
         repository.deleteByGenero(GeneroLivro.CIENCIA);
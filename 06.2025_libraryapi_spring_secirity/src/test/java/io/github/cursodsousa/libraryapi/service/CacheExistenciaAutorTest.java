@@ -0,0 +1,39 @@
+package io.github.cursodsousa.libraryapi.service;
+
+import io.github.cursodsousa.libraryapi.repository.AutorRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheExistenciaAutorTest {
+
+    AutorRepository repository = Mockito.mock(AutorRepository.class);
+
+    CacheExistenciaAutor cache = new CacheExistenciaAutor(repository, 2);
+
+    @Test
+    void limiteDeAutoresTest(){
+        UUID primeiro = UUID.randomUUID();
+        UUID segundo = UUID.randomUUID();
+        UUID terceiro = UUID.randomUUID();
+        Mockito.when(repository.existsById(Mockito.any())).thenReturn(true);
+
+        cache.existe(primeiro);
+        cache.existe(segundo);
+        // o primeiro passa a ser o mais usado, sai o segundo
+        cache.existe(primeiro);
+        cache.existe(terceiro);
+        Mockito.clearInvocations(repository);
+
+        assertTrue(cache.existe(primeiro));
+        assertTrue(cache.existe(terceiro));
+        Mockito.verify(repository, Mockito.never()).existsById(primeiro);
+        Mockito.verify(repository, Mockito.never()).existsById(terceiro);
+
+        assertTrue(cache.existe(segundo));
+        Mockito.verify(repository).existsById(segundo);
+    }
+}
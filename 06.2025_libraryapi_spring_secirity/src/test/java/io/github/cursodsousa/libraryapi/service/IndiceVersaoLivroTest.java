@@ -0,0 +1,81 @@
+package io.github.cursodsousa.libraryapi.service;
+
+import io.github.cursodsousa.libraryapi.model.Livro;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndiceVersaoLivroTest {
+
+    RelogioAjustavel relogio = new RelogioAjustavel();
+
+    IndiceVersaoLivro indice = new IndiceVersaoLivro(2, Duration.ofMinutes(5), relogio);
+
+    @Test
+    void versaoExpiradaTest(){
+        Livro livro = livro(3L);
+        indice.registrar(livro);
+
+        relogio.avancar(Duration.ofMinutes(4));
+        assertEquals(Optional.of(3L), indice.obter(livro.getId()));
+
+        relogio.avancar(Duration.ofMinutes(2));
+        assertEquals(Optional.empty(), indice.obter(livro.getId()));
+    }
+
+    @Test
+    void limiteDeLivrosTest(){
+        Livro primeiro = livro(1L);
+        Livro segundo = livro(1L);
+        Livro terceiro = livro(1L);
+
+        indice.registrar(primeiro);
+        indice.registrar(segundo);
+        // o primeiro passa a ser o mais usado, sai o segundo
+        indice.obter(primeiro.getId());
+        indice.registrar(terceiro);
+
+        assertEquals(Optional.of(1L), indice.obter(primeiro.getId()));
+        assertEquals(Optional.empty(), indice.obter(segundo.getId()));
+        assertEquals(Optional.of(1L), indice.obter(terceiro.getId()));
+    }
+
+    private Livro livro(Long versao){
+        Livro livro = new Livro();
+        livro.setId(UUID.randomUUID());
+        livro.setVersao(versao);
+        return livro;
+    }
+
+    static class RelogioAjustavel extends Clock {
+
+        private Instant agora = Instant.parse("2025-06-01T10:00:00Z");
+
+        void avancar(Duration duracao){
+            agora = agora.plus(duracao);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return agora;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.cursodsousa.libraryapi.service;
+
+import io.github.cursodsousa.libraryapi.model.Autor;
+import io.github.cursodsousa.libraryapi.model.GeneroLivro;
+import io.github.cursodsousa.libraryapi.model.Livro;
+import io.github.cursodsousa.libraryapi.repository.AutorRepository;
+import io.github.cursodsousa.libraryapi.repository.LivroRepository;
+import io.github.cursodsousa.libraryapi.repository.projections.ResumoLivro;
+import io.github.cursodsousa.libraryapi.repository.specs.FiltroPesquisaLivro;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A pesquisa de livros é uma consulta por página (projeção com o autor), mais o count no modo PAGINA.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class LivroServicePesquisaTest {
+
+    @Autowired
+    LivroService service;
+
+    @Autowired
+    LivroRepository livroRepository;
+
+    @Autowired
+    AutorRepository autorRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    Autor autor;
+
+    List<Livro> livros = new ArrayList<>();
+
+    // título único dos livros do teste, usado como filtro
+    String titulo = "Pesquisa " + UUID.randomUUID();
+
+    @BeforeEach
+    void setUp(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        autor = new Autor();
+        autor.setNome("José");
+        autor.setNacionalidade("Brasileira");
+        autor.setDataNascimento(LocalDate.of(1951, 1, 31));
+        autor = autorRepository.save(autor);
+
+        for (int i = 0; i < 3; i++) {
+            Livro livro = new Livro();
+            livro.setIsbn(UUID.randomUUID().toString().substring(0, 20));
+            livro.setTitulo(titulo + " " + i);
+            livro.setGenero(GeneroLivro.FICCAO);
+            livro.setPreco(BigDecimal.valueOf(100));
+            livro.setDataPublicacao(LocalDate.of(1980, 1, 2));
+            livro.setAutor(autor);
+            livros.add(livroRepository.save(livro));
+        }
+
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown(){
+        livroRepository.deleteAll(livros);
+        autorRepository.delete(autor);
+    }
+
+    @Test
+    void pesquisaComCountTest(){
+        var pagina = service.pesquisa(filtro(titulo, null), 0, 2);
+
+        assertEquals(3, pagina.getTotalElements());
+        assertEquals("José", pagina.getContent().get(0).nomeAutor());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pesquisaComFiltroPorAutorTest(){
+        var pagina = service.pesquisa(filtro(titulo, "jos"), 0, 2);
+
+        assertEquals(3, pagina.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pesquisaSemTotalTest(){
+        var fatia = service.pesquisaSemTotal(filtro(titulo, null), 0, 2);
+
+        assertTrue(fatia.hasNext());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pesquisaPorCursorTest(){
+        var fatia = service.pesquisaPorCursor(filtro(titulo, null), null, 2);
+        ResumoLivro ultimo = fatia.getContent().get(1);
+
+        assertEquals(titulo + " 1", ultimo.titulo());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void pesquisaNaoCarregaEntidadesTest(){
+        service.pesquisa(filtro(titulo, null), 0, 2);
+
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private FiltroPesquisaLivro filtro(String titulo, String nomeAutor){
+        return new FiltroPesquisaLivro(null, titulo, nomeAutor, null, null, null, null, null, null);
+    }
+}
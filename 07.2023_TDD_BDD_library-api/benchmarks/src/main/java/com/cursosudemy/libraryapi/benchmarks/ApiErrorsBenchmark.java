@@ -0,0 +1,77 @@
+package com.cursosudemy.libraryapi.benchmarks;
+
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.api.exceptions.ApiErrors;
+import com.cursosudemy.libraryapi.exception.BusinessException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    The error bodies built by ApplicationControllerAdvice. The *WithException benchmarks also create the
+    exception, as happens on every rejected request, so the cost of filling the stack trace shows up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiErrorsBenchmark {
+
+    BindingResult bindingResult;
+
+    BusinessException businessException;
+
+    ResponseStatusException responseStatusException;
+
+    @Setup
+    public void setUp() {
+        // the three @NotEmpty fields of an empty BookDTO
+        bindingResult = new BeanPropertyBindingResult(new BookDTO(), "bookDTO");
+        bindingResult.rejectValue("title", "NotEmpty", "must not be empty");
+        bindingResult.rejectValue("author", "NotEmpty", "must not be empty");
+        bindingResult.rejectValue("isbn", "NotEmpty", "must not be empty");
+
+        businessException = new BusinessException("Isbn já cadastrado.");
+        responseStatusException = new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn");
+    }
+
+    @Benchmark
+    public ApiErrors fromBindingResult() {
+        return new ApiErrors(bindingResult);
+    }
+
+    @Benchmark
+    public ApiErrors fromBusinessException() {
+        return new ApiErrors(businessException);
+    }
+
+    @Benchmark
+    public ApiErrors fromResponseStatusException() {
+        return new ApiErrors(responseStatusException);
+    }
+
+    @Benchmark
+    public ApiErrors fromBusinessExceptionWithException() {
+        return new ApiErrors(new BusinessException("Isbn já cadastrado."));
+    }
+
+    @Benchmark
+    public ApiErrors fromResponseStatusExceptionWithException() {
+        return new ApiErrors(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
+    }
+}
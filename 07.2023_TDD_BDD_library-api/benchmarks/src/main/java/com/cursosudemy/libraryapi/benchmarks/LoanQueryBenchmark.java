@@ -0,0 +1,136 @@
+package com.cursosudemy.libraryapi.benchmarks;
+
+import com.cursosudemy.libraryapi.LibraryApiApplication;
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
+import com.cursosudemy.libraryapi.api.dto.LoanFilterDTO;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.service.LoanService;
+import com.cursosudemy.libraryapi.service.OverdueLoanTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    LoanServiceImpl against the application context (without the web layer) and an embedded H2 database
+    filled with datasetSize books, each one with a loan:
+    - one in three loans is returned
+    - the loan dates go from today to 9 days ago, so about half of the open loans are late
+    - the loans belong to 500 customers
+
+    The dataset size is a JMH parameter: java -jar target/benchmarks.jar LoanQueryBenchmark -p datasetSize=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanQueryBenchmark {
+
+    private static final int CUSTOMERS = 500;
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Param({"10000"})
+    int datasetSize;
+
+    ConfigurableApplicationContext context;
+
+    LoanService loanService;
+
+    LoanFilterDTO isbnFilter;
+
+    LoanFilterDTO customerFilter;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1",
+                        "spring.boot.admin.client.enabled=false",
+                        "application.mail.dispatcher.max-attempts=1",
+                        "logging.file=",
+                        "logging.level.root=WARN",
+                        // the mail check sent after the startup can not be delivered from here
+                        "logging.level.com.cursosudemy.libraryapi.service.impl.AsyncEmailServiceImpl=OFF")
+                .run();
+
+        insertDataset(context.getBean(JdbcTemplate.class));
+        // the dataset is inserted after the startup refresh of the overdue loans
+        context.getBean(OverdueLoanTracker.class).refresh(LocalDate.now());
+
+        loanService = context.getBean(LoanService.class);
+        isbnFilter = LoanFilterDTO.builder().isbn(String.valueOf(datasetSize / 2)).build();
+        customerFilter = LoanFilterDTO.builder().customer("customer-7").build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Loan> findByIsbn() {
+        return loanService.find(isbnFilter, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Page<Loan> findByCustomer() {
+        return loanService.find(customerFilter, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public List<Loan> getAllLateLoans() {
+        return loanService.getAllLateLoans();
+    }
+
+    // a chunk of the daily late loans scan (LateLoanScanner)
+    @Benchmark
+    public List<LoanDto> findLateLoansBetween() {
+        return loanService.findLateLoansBetween(0L, (long) datasetSize, 100);
+    }
+
+    private void insertDataset(JdbcTemplate jdbcTemplate) {
+        List<Object[]> books = new ArrayList<>(INSERT_BATCH_SIZE);
+        List<Object[]> loans = new ArrayList<>(INSERT_BATCH_SIZE);
+        LocalDate today = LocalDate.now();
+
+        for (long id = 1; id <= datasetSize; id++) {
+            String customer = "customer-" + (id % CUSTOMERS);
+
+            books.add(new Object[]{id, "Book " + id, "Author " + (id % 1000), String.valueOf(id)});
+            loans.add(new Object[]{customer, customer + "@email.com", id,
+                    Date.valueOf(today.minusDays(id % 10)), id % 3 == 0});
+
+            if(books.size() == INSERT_BATCH_SIZE || id == datasetSize) {
+                jdbcTemplate.batchUpdate("insert into book (id, title, author, isbn) values (?, ?, ?, ?)", books);
+                jdbcTemplate.batchUpdate("insert into loan (customer, customer_email, id_book, loan_date, returned) " +
+                        "values (?, ?, ?, ?, ?)", loans);
+                books.clear();
+                loans.clear();
+            }
+        }
+    }
+}
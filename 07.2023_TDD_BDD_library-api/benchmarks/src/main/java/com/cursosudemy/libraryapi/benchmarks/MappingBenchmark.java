@@ -0,0 +1,76 @@
+package com.cursosudemy.libraryapi.benchmarks;
+
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+    The ModelMapper conversions done by BookController: the request DTO to the entity (create / find filter)
+    and the entities of a result page back to DTOs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"20", "100"})
+    int pageSize;
+
+    ModelMapper modelMapper;
+
+    BookDTO dto;
+
+    Book book;
+
+    List<Book> page;
+
+    @Setup
+    public void setUp() {
+        // the same bean as LibraryApiApplication
+        modelMapper = new ModelMapper();
+
+        dto = BookDTO.builder().title("As aventuras").author("Fulano").isbn("001").build();
+        book = Book.builder().id(1L).title("As aventuras").author("Fulano").isbn("001").build();
+
+        page = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            page.add(Book.builder().id(id).title("As aventuras " + id).author("Fulano").isbn(String.valueOf(id)).build());
+        }
+    }
+
+    @Benchmark
+    public Book dtoToEntity() {
+        return modelMapper.map(dto, Book.class);
+    }
+
+    @Benchmark
+    public BookDTO entityToDto() {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Benchmark
+    public List<BookDTO> pageToDtos() {
+        return page.stream()
+                .map( entity -> modelMapper.map(entity, BookDTO.class))
+                .collect(Collectors.toList());
+    }
+}
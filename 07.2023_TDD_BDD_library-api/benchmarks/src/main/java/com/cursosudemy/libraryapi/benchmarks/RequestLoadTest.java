@@ -0,0 +1,241 @@
+package com.cursosudemy.libraryapi.benchmarks;
+
+import com.cursosudemy.libraryapi.LibraryApiApplication;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.servlet.Filter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Load test of the request path in the platform and virtual thread modes (application.execution.threads).
+    For each mode the application is started with an embedded H2 database and a local SMTP stub (GreenMail),
+    and `concurrency` clients request GET /api/books/{id} and GET /api/loans?customer= in a loop. Every request
+    also blocks for blockingMillis in a servlet filter, standing for a slow database or SMTP server.
+
+    java -cp target/benchmarks.jar com.cursosudemy.libraryapi.benchmarks.RequestLoadTest \
+        modes=platform,virtual concurrency=400 seconds=20 warmupSeconds=5 blockingMillis=20 books=1000
+
+    The virtual mode needs Java 21. The clients run in the same JVM, on platform threads.
+ */
+public class RequestLoadTest {
+
+    private static final int CUSTOMERS = 100;
+    private static final int SMTP_PORT = 3025;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("modes", "platform,virtual");
+        options.put("concurrency", "400");
+        options.put("seconds", "20");
+        options.put("warmupSeconds", "5");
+        options.put("blockingMillis", "20");
+        options.put("books", "1000");
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if(option.length != 2 || !options.containsKey(option[0])) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", the options are " + options.keySet());
+            }
+            options.put(option[0], option[1]);
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-10s %12s %10s %10s %10s %10s %8s",
+                "mode", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors"));
+
+        for (String mode : options.get("modes").split(",")) {
+            report.add(runWithSmtpStub(mode.trim(),
+                    Integer.parseInt(options.get("concurrency")),
+                    Integer.parseInt(options.get("seconds")),
+                    Integer.parseInt(options.get("warmupSeconds")),
+                    Integer.parseInt(options.get("books")),
+                    options.get("blockingMillis")));
+        }
+
+        System.out.println();
+        System.out.println("concurrency=" + options.get("concurrency") + " blockingMillis=" + options.get("blockingMillis")
+                + " server.tomcat.max-threads=200");
+        report.forEach(System.out::println);
+    }
+
+    private static String runWithSmtpStub(String mode, int concurrency, int seconds, int warmupSeconds, int books,
+                                          String blockingMillis) throws Exception {
+        // accepts the credentials of application.properties
+        GreenMail smtp = new GreenMail(new ServerSetup(SMTP_PORT, "localhost", ServerSetup.PROTOCOL_SMTP))
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        smtp.start();
+        try {
+            return run(mode, concurrency, seconds, warmupSeconds, books, blockingMillis);
+        } finally {
+            smtp.stop();
+        }
+    }
+
+    private static String run(String mode, int concurrency, int seconds, int warmupSeconds, int books,
+                              String blockingMillis) throws Exception {
+        // command line arguments, so they take precedence over application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class, BlockingCall.class)
+                .run(
+                        "--application.execution.threads=" + mode,
+                        "--loadtest.blocking-millis=" + blockingMillis,
+                        "--server.port=0",
+                        "--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--spring.mail.host=localhost",
+                        "--spring.mail.port=" + SMTP_PORT,
+                        "--spring.boot.admin.client.enabled=false",
+                        "--application.jpa.slow-query-threshold-ms=1000",
+                        "--logging.file=target/loadtest.log",
+                        "--logging.level.root=WARN");
+
+        try {
+            insertDataset(context.getBean(JdbcTemplate.class), books);
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+
+            System.out.println(mode + ": warming up for " + warmupSeconds + "s");
+            load(port, concurrency, warmupSeconds, books);
+            System.out.println(mode + ": measuring for " + seconds + "s");
+            Result result = load(port, concurrency, seconds, books);
+
+            Histogram latencies = result.latencies;
+            return String.format("%-10s %12d %10.1f %10.2f %10.2f %10.2f %8d",
+                    mode,
+                    latencies.getTotalCount(),
+                    latencies.getTotalCount() / (double) seconds,
+                    latencies.getValueAtPercentile(50) / 1000.0,
+                    latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getMaxValue() / 1000.0,
+                    result.errors);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result load(int port, int concurrency, int seconds, int books) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Histogram> histograms = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            // latencies in microseconds, up to one minute
+            Histogram histogram = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+            histograms.add(histogram);
+
+            Thread client = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        if(!request(port, books)) {
+                            errors.incrementAndGet();
+                        }
+                        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start),
+                                histogram.getHighestTrackableValue()));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-client-" + i);
+            client.setDaemon(true);
+            client.start();
+        }
+        done.await();
+
+        Histogram latencies = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+        histograms.forEach(latencies::add);
+        return new Result(latencies, errors.get());
+    }
+
+    private static boolean request(int port, int books) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String path = random.nextBoolean()
+                ? "/api/books/" + (random.nextInt(books) + 1)
+                : "/api/loans?customer=customer-" + random.nextInt(CUSTOMERS) + "&page=0&size=10";
+
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+
+            // reads the whole body, so the connection is kept alive for the next request
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if(body != null) {
+                    byte[] buffer = new byte[8192];
+                    while (body.read(buffer) != -1) {
+                        // discards the body
+                    }
+                }
+            }
+            return status == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void insertDataset(JdbcTemplate jdbcTemplate, int books) {
+        List<Object[]> bookRows = new ArrayList<>();
+        List<Object[]> loanRows = new ArrayList<>();
+        for (long id = 1; id <= books; id++) {
+            String customer = "customer-" + (id % CUSTOMERS);
+            bookRows.add(new Object[]{id, "Book " + id, "Author " + id, String.valueOf(id), 0L});
+            loanRows.add(new Object[]{customer, customer + "@email.com", id, Date.valueOf(LocalDate.now()), id % 2 == 0});
+        }
+        jdbcTemplate.batchUpdate("insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, ?)", bookRows);
+        jdbcTemplate.batchUpdate("insert into loan (customer, customer_email, id_book, loan_date, returned) " +
+                "values (?, ?, ?, ?, ?)", loanRows);
+    }
+
+    private static class Result {
+        private final Histogram latencies;
+        private final long errors;
+
+        private Result(Histogram latencies, long errors) {
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+    }
+
+    // the slow downstream call of every request: blocks the thread handling it
+    @Configuration
+    static class BlockingCall {
+
+        @Bean
+        public FilterRegistrationBean<Filter> blockingCallFilter(Environment environment) {
+            long blockingMillis = environment.getProperty("loadtest.blocking-millis", Long.class, 0L);
+
+            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+                try {
+                    Thread.sleep(blockingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                chain.doFilter(request, response);
+            });
+            registration.addUrlPatterns("/api/*");
+            return registration;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.cursosudemy.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+
+    public enum Status { CREATED, DUPLICATED, INVALID }
+
+    // position of the row in the imported payload
+    private int index;
+    private String isbn;
+    private Long id;
+    private Status status;
+    private String error;
+}
@@ -0,0 +1,22 @@
+package com.cursosudemy.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/*
+    Events read from the event topic. The consumer keeps nextOffset and sends it back as the offset of the
+    next read, also when the batch is empty. An offset the topic no longer has is answered with 410 (events
+    removed by retention) or 409 (offset past the end, e.g. the database was recreated), never skipped.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEventBatchDTO {
+
+    private List<ChangeEventDTO> events;
+
+    private long nextOffset;
+}
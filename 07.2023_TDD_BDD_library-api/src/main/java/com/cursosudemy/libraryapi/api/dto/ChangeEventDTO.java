@@ -0,0 +1,44 @@
+package com.cursosudemy.libraryapi.api.dto;
+
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEventDTO {
+
+    // position in the event topic, null in the event log file
+    private Long offset;
+
+    private Long id;
+
+    private String aggregateType;
+
+    private Long aggregateId;
+
+    private OutboxEvent.Type type;
+
+    private LocalDateTime createdAt;
+
+    @JsonRawValue
+    private String payload;
+
+    public static ChangeEventDTO of(OutboxEvent event) {
+        return ChangeEventDTO.builder()
+                .id(event.getId())
+                .aggregateType(event.getAggregateType())
+                .aggregateId(event.getAggregateId())
+                .type(event.getType())
+                .createdAt(event.getCreatedAt())
+                .payload(event.getPayload())
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.cursosudemy.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+    Page of a keyset (seek) pagination: instead of a page number the client sends back the "next" token,
+    which encodes the id of the last row returned. No count query is needed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPageDTO<T> {
+
+    public static final int MAX_SIZE = 1000;
+
+    private List<T> content;
+    private int size;
+    // null when there are no more rows
+    private String next;
+
+    /*
+        Builds the page from up to size + 1 rows read after the previous token; the extra row only tells
+        that there is a next page.
+     */
+    public static <T> KeysetPageDTO<T> of(List<T> rows, int size, Function<T, Long> idOf) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String next = hasNext ? encodeToken(idOf.apply(content.get(content.size() - 1))) : null;
+
+        return new KeysetPageDTO<>(content, size, next);
+    }
+
+    public static int checkSize(int size) {
+        if(size < 1 || size > MAX_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + MAX_SIZE);
+        }
+        return size;
+    }
+
+    public static String encodeToken(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // id after which the page starts, 0 for the first page
+    public static Long decodeToken(String token) {
+        if(token == null || token.isEmpty()) {
+            return 0L;
+        }
+
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid continuation token");
+        }
+    }
+}
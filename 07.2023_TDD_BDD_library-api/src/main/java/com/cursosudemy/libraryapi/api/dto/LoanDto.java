@@ -20,4 +20,14 @@ public class LoanDto {
     @NotEmpty
     private String customerEmail;
     private BookDTO bookDTO;
+
+    // used by the projection queries of LoanRepository (loan and book read in one statement)
+    public LoanDto(Long id, String customer, String customerEmail,
+                   Long bookId, String isbn, String title, String author) {
+        this.id = id;
+        this.isbn = isbn;
+        this.customer = customer;
+        this.customerEmail = customerEmail;
+        this.bookDTO = new BookDTO(bookId, title, author, isbn);
+    }
 }
@@ -1,13 +1,18 @@
 package com.cursosudemy.libraryapi.api.resources;
 
 import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.api.dto.BookImportResultDTO;
+import com.cursosudemy.libraryapi.api.dto.KeysetPageDTO;
 import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.api.exceptions.ApiErrors;
 import com.cursosudemy.libraryapi.exception.BusinessException;
 import com.cursosudemy.libraryapi.model.entity.Book;
-import com.cursosudemy.libraryapi.model.entity.Loan;
 import com.cursosudemy.libraryapi.service.BookService;
 import com.cursosudemy.libraryapi.service.LoanService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
@@ -15,19 +20,32 @@ import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static com.cursosudemy.libraryapi.api.resources.NdjsonResponses.APPLICATION_NDJSON;
+
 @RestController
 @RequestMapping("/api/books")
 // @RequiredArgsConstructor
@@ -41,10 +59,17 @@ public class BookController {
 
     private final LoanService loanService;
 
-    public BookController(BookService service, ModelMapper modelMapper, LoanService loanService) {
+    private final ObjectMapper objectMapper;
+
+    @Value("${application.books.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    public BookController(BookService service, ModelMapper modelMapper, LoanService loanService,
+                          ObjectMapper objectMapper) {
         this.service = service;
         this.modelMapper = modelMapper;
         this.loanService = loanService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -60,13 +85,111 @@ public class BookController {
         return modelMapper.map(entity, BookDTO.class);
     }
 
+    /*
+        Reads a JSON array or NDJSON body row by row and imports it in chunks, writing one NDJSON result per
+        row as soon as its chunk is imported. Neither the payload nor the results are kept in memory.
+     */
+    @PostMapping(path = "bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON})
+    @ApiOperation("Imports books from a JSON array or NDJSON stream")
+    public void bulkCreate(InputStream body, HttpServletResponse response) throws IOException {
+        log.info("importing books");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(APPLICATION_NDJSON);
+
+        OutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(BookImportResultDTO.class);
+
+        List<Book> chunk = new ArrayList<>(bulkChunkSize);
+        int index = 0;
+
+        try (MappingIterator<BookDTO> rows = objectMapper.readerFor(BookDTO.class).readValues(body)) {
+            while (rows.hasNextValue()) {
+                BookDTO dto = rows.nextValue();
+                chunk.add(Book.builder().title(dto.getTitle()).author(dto.getAuthor()).isbn(dto.getIsbn()).build());
+
+                if(chunk.size() == bulkChunkSize) {
+                    index = importChunk(chunk, index, writer, out);
+                }
+            }
+            importChunk(chunk, index, writer, out);
+        } catch (JsonProcessingException e) {
+            index = importChunk(chunk, index, writer, out);
+            writeResult(BookImportResultDTO.builder()
+                    .index(index)
+                    .status(BookImportResultDTO.Status.INVALID)
+                    .error("Malformed row: " + e.getOriginalMessage())
+                    .build(), writer, out);
+        }
+
+        out.flush();
+    }
+
+    private int importChunk(List<Book> chunk, int index, ObjectWriter writer, OutputStream out) throws IOException {
+        if(chunk.isEmpty()) {
+            return index;
+        }
+
+        for (BookImportResultDTO result : service.importBooks(chunk)) {
+            result.setIndex(index++);
+            writeResult(result, writer, out);
+        }
+        out.flush();
+        chunk.clear();
+
+        return index;
+    }
+
+    private void writeResult(BookImportResultDTO result, ObjectWriter writer, OutputStream out) throws IOException {
+        out.write(writer.writeValueAsBytes(result));
+        out.write('\n');
+    }
+
+    /*
+        Answers 304 when the If-None-Match header holds the current version of the book. When the version
+        is known by the version index the book is not even read.
+     */
     @GetMapping (path = "{id}")
     @ApiOperation("Obtains a book details by id")
-    public BookDTO findById(@PathVariable Long id) {
+    public ResponseEntity<BookDTO> findById(@PathVariable Long id,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("obtaining details for book id: {} ", id);
-        return service.getById(id)
-                .map( book -> modelMapper.map(book, BookDTO.class) )
-                .orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        if(ifNoneMatch != null) {
+            Optional<String> eTag = service.getCachedVersion(id).map(BookController::eTag);
+            if(eTag.isPresent() && matches(ifNoneMatch, eTag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+            }
+        }
+
+        Book book = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if(book.getVersion() == null) {
+            return ResponseEntity.ok(modelMapper.map(book, BookDTO.class));
+        }
+
+        String eTag = eTag(book.getVersion());
+        if(ifNoneMatch != null && matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        return ResponseEntity.ok().eTag(eTag).body(modelMapper.map(book, BookDTO.class));
+    }
+
+    private static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // weak comparison, as If-None-Match requires
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if(value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if(value.equals("*") || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @GetMapping
@@ -84,6 +207,55 @@ public class BookController {
         return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
     }
 
+    /*
+        All the books of the filter as NDJSON, ordered by id, written while they are read (no page, no count).
+     */
+    @GetMapping(produces = APPLICATION_NDJSON)
+    @ApiOperation("Streams the books found by param as NDJSON")
+    public ResponseEntity<StreamingResponseBody> stream(BookDTO dto) {
+        Book filter = modelMapper.map(dto, Book.class);
+        return NdjsonResponses.<BookDTO>stream(objectMapper.writerFor(BookDTO.class),
+                consumer -> service.streamDtos(filter, consumer));
+    }
+
+    @GetMapping(params = "keyset")
+    @ApiOperation("Find books by param using keyset pagination (no page count)")
+    public KeysetPageDTO<BookDTO> findKeyset(BookDTO dto,
+                                            @RequestParam(value = "after", required = false) String after,
+                                            @RequestParam(value = "size", defaultValue = "20") int size) {
+        Book filter = modelMapper.map(dto, Book.class);
+        List<Book> result = service.findAfter(filter, KeysetPageDTO.decodeToken(after), KeysetPageDTO.checkSize(size) + 1);
+
+        List<BookDTO> list = result
+                .stream()
+                .map( entity -> modelMapper.map(entity, BookDTO.class))
+                .collect(Collectors.toList());
+
+        return KeysetPageDTO.of(list, size, BookDTO::getId);
+    }
+
+    // ids of the books without an open loan, answered from BookAvailabilityIndex
+    @GetMapping("available")
+    @ApiOperation("Lists the ids of the available books using keyset pagination")
+    public KeysetPageDTO<Long> findAvailable(@RequestParam(value = "after", required = false) String after,
+                                             @RequestParam(value = "size", defaultValue = "100") int size) {
+        List<Long> ids = service.findAvailableIdsAfter(KeysetPageDTO.decodeToken(after), KeysetPageDTO.checkSize(size) + 1);
+        return KeysetPageDTO.of(ids, size, id -> id);
+    }
+
+    @GetMapping("search")
+    @ApiOperation("Searches books by title or author, best matches first")
+    public Page<BookDTO> search(@RequestParam("q") String text, Pageable pageRequest) {
+        Page<Book> result = service.search(text, pageRequest);
+
+        List<BookDTO> list = result.getContent()
+                .stream()
+                .map( entity -> modelMapper.map(entity, BookDTO.class))
+                .collect(Collectors.toList());
+
+        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+    }
+
     @DeleteMapping(path = "{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @ApiOperation("Deletes a book by id")
@@ -111,24 +283,11 @@ public class BookController {
     }
     @GetMapping("{id}/loans")
     @ApiOperation("Gets loans by book id")
-    public Page<LoanDto> loansByBook(@PathVariable Long bookId, Pageable pageable) {
+    public Page<LoanDto> loansByBook(@PathVariable("id") Long bookId, Pageable pageable) {
         Book book = service.getById(bookId).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        Page<Loan> result = loanService.getLoansByBook(book, pageable);
 
-        List<LoanDto> loanDtos =result.getContent()
-                .stream()
-                .map(
-                        loan -> {
-                            Book loanBook = loan.getBook();
-                            BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-
-                            LoanDto loanDto = modelMapper.map(loan, LoanDto.class);
-                            loanDto.setBookDTO(bookDTO);
-                            return loanDto;
-                        }
-                ).collect(Collectors.toList());
-
-        return new PageImpl<LoanDto>(loanDtos, pageable, result.getTotalElements());
+        // loans and book are read already projected into LoanDto in a single statement
+        return loanService.getLoanDtosByBook(book.getId(), pageable);
     }
 
 //    @ExceptionHandler(MethodArgumentNotValidException.class)
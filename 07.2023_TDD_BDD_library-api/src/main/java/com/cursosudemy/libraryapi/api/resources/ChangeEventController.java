@@ -0,0 +1,53 @@
+package com.cursosudemy.libraryapi.api.resources;
+
+import com.cursosudemy.libraryapi.api.dto.ChangeEventBatchDTO;
+import com.cursosudemy.libraryapi.api.dto.KeysetPageDTO;
+import com.cursosudemy.libraryapi.service.impl.EventTopicSink;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/events")
+@Api("Change events API")
+public class ChangeEventController {
+
+    private final ObjectProvider<EventTopicSink> topic;
+
+    public ChangeEventController(ObjectProvider<EventTopicSink> topic) {
+        this.topic = topic;
+    }
+
+    // the changes of books and loans from the offset on, instead of polling the whole catalogue
+    @GetMapping
+    @ApiOperation("Reads the change events of books and loans from an offset")
+    public ChangeEventBatchDTO read(@RequestParam(value = "offset", defaultValue = "0") long offset,
+                                    @RequestParam(value = "size", defaultValue = "100") int size) {
+        EventTopicSink sink = topic.getIfAvailable();
+        if(sink == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The event topic is disabled");
+        }
+
+        int maxEvents = KeysetPageDTO.checkSize(size);
+
+        // the events are never skipped silently, the consumer is told to read again from the first offset
+        long endOffset = sink.endOffset();
+        if(offset > endOffset) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Offset " + offset + " is past the end of the topic (" + endOffset + "), read again from offset 0");
+        }
+        long firstOffset = sink.firstOffset();
+        if(offset > 0 && offset < firstOffset) {
+            throw new ResponseStatusException(HttpStatus.GONE,
+                    "The events before offset " + firstOffset + " were removed, read again from offset 0");
+        }
+
+        return sink.read(offset, maxEvents);
+    }
+}
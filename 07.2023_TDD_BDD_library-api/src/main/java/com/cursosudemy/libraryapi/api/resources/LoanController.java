@@ -1,6 +1,6 @@
 package com.cursosudemy.libraryapi.api.resources;
 
-import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.api.dto.KeysetPageDTO;
 import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.api.dto.LoanFilterDTO;
 import com.cursosudemy.libraryapi.api.dto.ReturnedLoanDTO;
@@ -8,19 +8,20 @@ import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.model.entity.Loan;
 import com.cursosudemy.libraryapi.service.BookService;
 import com.cursosudemy.libraryapi.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import static com.cursosudemy.libraryapi.api.resources.NdjsonResponses.APPLICATION_NDJSON;
 
 @RestController
 @RequestMapping("/api/loans")
@@ -30,8 +31,8 @@ public class LoanController {
 
     private final LoanService loanService;
     private final BookService bookService;
+    private final ObjectMapper objectMapper;
 
-    private final ModelMapper modelMapper;
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Long create(@RequestBody  LoanDto dto) {
@@ -57,23 +58,36 @@ public class LoanController {
                 new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found for passed id"));
 
         loan.setReturned(dto.getReturned());
+        loan.setReturnDate(Boolean.TRUE.equals(dto.getReturned()) ? LocalDate.now() : null);
         loanService.update(loan);
     }
 
     @GetMapping
-    public Page<LoanDto> find(LoanFilterDTO loanFilterDTO, Pageable pageableRequest) {
-        Page<Loan> result = loanService.find(loanFilterDTO, pageableRequest);
+    public Page<LoanDto> find(LoanFilterDTO loanFilterDTO, Pageable pageableRequest,
+                              @RequestParam(value = "history", defaultValue = "false") boolean history) {
+        // the archived loans are only read when the full history is asked for
+        if(history) {
+            return loanService.findDtosWithHistory(loanFilterDTO, pageableRequest);
+        }
+
+        // loans and books are read already projected into LoanDto in a single statement
+        return loanService.findDtos(loanFilterDTO, pageableRequest);
+    }
 
-        List<LoanDto> loanDtos = result.getContent().stream().map(entity ->
-            {
-                Book book = entity.getBook();
-                BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                LoanDto loanDto = modelMapper.map(entity, LoanDto.class);
-                loanDto.setBookDTO(bookDTO);
+    // all the loans of the filter as NDJSON, ordered by id, written while they are read (no page, no count)
+    @GetMapping(produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> stream(LoanFilterDTO loanFilterDTO) {
+        return NdjsonResponses.<LoanDto>stream(objectMapper.writerFor(LoanDto.class),
+                consumer -> loanService.streamDtos(loanFilterDTO, consumer));
+    }
 
-                return loanDto;
-            }).collect(Collectors.toList());
+    @GetMapping(params = "keyset")
+    public KeysetPageDTO<LoanDto> findKeyset(LoanFilterDTO loanFilterDTO,
+                                             @RequestParam(value = "after", required = false) String after,
+                                             @RequestParam(value = "size", defaultValue = "20") int size) {
+        List<LoanDto> result = loanService.findDtosAfter(
+                loanFilterDTO, KeysetPageDTO.decodeToken(after), KeysetPageDTO.checkSize(size) + 1);
 
-        return new PageImpl<LoanDto>(loanDtos, pageableRequest, result.getTotalElements());
+        return KeysetPageDTO.of(result, size, LoanDto::getId);
     }
 }
@@ -0,0 +1,50 @@
+package com.cursosudemy.libraryapi.api.resources;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/*
+    NDJSON responses written while the rows are read. The body is written by the async request processing
+    (spring.task.execution, or virtual threads with application.execution.threads=virtual), so the Tomcat
+    thread is released as soon as the handler returns.
+ */
+final class NdjsonResponses {
+
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private NdjsonResponses() {
+    }
+
+    // source reads the rows and hands each one to the consumer it receives
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectWriter writer, Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = out -> {
+            try {
+                source.accept(row -> write(writer, row, out));
+            } catch (UncheckedIOException e) {
+                // the client went away, the reading is interrupted by the exception
+                throw e.getCause();
+            }
+            out.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(body);
+    }
+
+    private static <T> void write(ObjectWriter writer, T row, OutputStream out) {
+        try {
+            out.write(writer.writeValueAsBytes(row));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.cursosudemy.libraryapi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Records how long each bean takes to be created: from its instantiation to the end of its initialization.
+    The time spent creating its dependencies is reported apart, so selfMillis is the time of the bean alone.
+    Lazy beans are recorded when they are first used. Reported by StartupEndpoint (/actuator/startup).
+ */
+public class BeanStartupRecorder implements InstantiationAwareBeanPostProcessor {
+
+    private final ThreadLocal<Deque<Creation>> creations = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Map<String, BeanStartup> startups = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        creations.get().push(new Creation(beanName, beanClass, System.nanoTime()));
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Deque<Creation> stack = creations.get();
+        if(stack.stream().noneMatch(creation -> creation.beanName.equals(beanName))) {
+            // objects of factory beans and beans registered already created
+            return bean;
+        }
+
+        // the creations above it failed or were replaced by another post processor
+        Creation creation = stack.pop();
+        while (!creation.beanName.equals(beanName)) {
+            creation = stack.pop();
+        }
+
+        long elapsed = System.nanoTime() - creation.start;
+        if(!stack.isEmpty()) {
+            stack.peek().dependenciesNanos += elapsed;
+        }
+
+        startups.put(beanName, new BeanStartup(beanName, creation.beanClass.getName(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                TimeUnit.NANOSECONDS.toMillis(elapsed - creation.dependenciesNanos)));
+        return bean;
+    }
+
+    // slowest first
+    public List<BeanStartup> getStartups() {
+        List<BeanStartup> result = new ArrayList<>(startups.values());
+        result.sort(Comparator.comparingLong(BeanStartup::getSelfMillis).reversed()
+                .thenComparing(BeanStartup::getBeanName));
+        return result;
+    }
+
+    private static class Creation {
+        private final String beanName;
+        private final Class<?> beanClass;
+        private final long start;
+        private long dependenciesNanos;
+
+        private Creation(String beanName, Class<?> beanClass, long start) {
+            this.beanName = beanName;
+            this.beanClass = beanClass;
+            this.start = start;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class BeanStartup {
+        private final String beanName;
+        private final String type;
+        private final long totalMillis;
+        private final long selfMillis;
+    }
+}
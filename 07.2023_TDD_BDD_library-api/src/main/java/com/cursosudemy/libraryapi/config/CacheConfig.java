@@ -0,0 +1,72 @@
+package com.cursosudemy.libraryapi.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@EnableCaching
+@Configuration
+public class CacheConfig {
+
+    public static final String BOOKS_BY_ISBN = "booksByIsbn";
+    public static final String BOOKS_ISBN_EXISTS = "booksIsbnExists";
+
+    @Value("${application.cache.isbn.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${application.cache.isbn.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${application.cache.isbn.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    /*
+        The caches are registered up front so the actuator binds their hit/miss/eviction metrics at startup
+        (cache.gets, cache.evictions in /actuator/metrics).
+     */
+    @Bean
+    public CacheManager cacheManager() {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Arrays.asList(isbnCache(BOOKS_BY_ISBN), isbnCache(BOOKS_ISBN_EXISTS)));
+        return cacheManager;
+    }
+
+    private Cache isbnCache(String name) {
+        return new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new IsbnExpiry())
+                .recordStats()
+                .build());
+    }
+
+    // unknown isbns (no book / exists = false) expire sooner than the found ones
+    private class IsbnExpiry implements Expiry<Object, Object> {
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            boolean negative = value == NullValue.INSTANCE || Boolean.FALSE.equals(value);
+            return TimeUnit.SECONDS.toNanos(negative ? negativeTtlSeconds : ttlSeconds);
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
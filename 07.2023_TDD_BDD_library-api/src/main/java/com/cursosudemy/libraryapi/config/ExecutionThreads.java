@@ -0,0 +1,94 @@
+package com.cursosudemy.libraryapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Threads of the request handling (Tomcat), the @Scheduled tasks, the late loans scan and the mail dispatcher,
+    chosen by application.execution.threads:
+    - platform: the usual threads, requests handled by Tomcat's pool (server.tomcat.max-threads)
+    - virtual: virtual threads, one per request; the blocking JDBC and SMTP calls release the carrier thread
+      instead of holding a pool thread. Needs Java 21 at runtime: the project is compiled for Java 8, so the
+      virtual threads are created by reflection.
+ */
+@Component
+public class ExecutionThreads {
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    private final boolean virtual;
+
+    public ExecutionThreads(@Value("${application.execution.threads:platform}") String mode) {
+        if(!PLATFORM.equals(mode) && !VIRTUAL.equals(mode)) {
+            throw new IllegalArgumentException("application.execution.threads must be platform or virtual: " + mode);
+        }
+        if(VIRTUAL.equals(mode) && !virtualThreadsSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running on Java "
+                    + System.getProperty("java.version"));
+        }
+        this.virtual = VIRTUAL.equals(mode);
+    }
+
+    public static boolean virtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // threads named namePrefix + number, daemon ones in the platform mode (virtual threads always are)
+    public ThreadFactory threadFactory(String namePrefix) {
+        if(virtual) {
+            return virtualThreadFactory(namePrefix);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // a new thread for each task, only for the virtual mode (the platform mode keeps the pools)
+    public ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if(!virtual) {
+            throw new IllegalStateException("Thread per task executors are only used with virtual threads");
+        }
+
+        try {
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory(namePrefix));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+
+    // Thread.ofVirtual().name(namePrefix, 1).factory()
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder$OfVirtual")
+                    .getMethod("name", String.class, long.class)
+                    .invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory")
+                    .invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread factory", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cursosudemy.libraryapi.config;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static com.cursosudemy.libraryapi.config.CacheConfig.BOOKS_BY_ISBN;
+import static com.cursosudemy.libraryapi.config.CacheConfig.BOOKS_ISBN_EXISTS;
+
+/*
+    Evicts the isbn caches of the book received as the "book" parameter once the method returns.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Caching(evict = {
+        @CacheEvict(cacheNames = BOOKS_BY_ISBN, key = "#book.isbn", condition = "#book?.isbn != null"),
+        @CacheEvict(cacheNames = BOOKS_ISBN_EXISTS, key = "#book.isbn", condition = "#book?.isbn != null")
+})
+public @interface IsbnCacheEvict {
+}
@@ -0,0 +1,64 @@
+package com.cursosudemy.libraryapi.config;
+
+import com.cursosudemy.libraryapi.service.EmailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import javax.mail.MessagingException;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    The mail sanity check, run once in the background after the application is ready instead of blocking the
+    startup: tests the SMTP connection and sends the test mail. Until it finishes the indicator is
+    OUT_OF_SERVICE, so /actuator/health/readiness only reports the instance ready once the mail works.
+ */
+@Slf4j
+@Component
+public class MailCheckHealthIndicator implements HealthIndicator {
+
+    static final List<String> RECIPIENTS = Arrays.asList("25f34114d9-a2330a@inbox.mailtrap.io");
+
+    private final EmailService emailService;
+    private final JavaMailSender javaMailSender;
+
+    private volatile Health health = Health.outOfService().withDetail("check", "pending").build();
+
+    public MailCheckHealthIndicator(EmailService emailService, JavaMailSender javaMailSender) {
+        this.emailService = emailService;
+        this.javaMailSender = javaMailSender;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::check, "mail-check");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void check() {
+        try {
+            if(javaMailSender instanceof JavaMailSenderImpl) {
+                ((JavaMailSenderImpl) javaMailSender).testConnection();
+            }
+            emailService.sendMails("Testando", RECIPIENTS);
+
+            health = Health.up().withDetail("recipients", RECIPIENTS).build();
+            log.info("mail check sent to {}", RECIPIENTS);
+        } catch (MessagingException | RuntimeException e) {
+            health = Health.down(e).build();
+            log.error("mail check failed", e);
+        }
+    }
+
+    @Override
+    public Health health() {
+        return health;
+    }
+}
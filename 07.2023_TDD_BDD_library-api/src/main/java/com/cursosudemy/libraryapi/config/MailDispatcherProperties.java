@@ -0,0 +1,29 @@
+package com.cursosudemy.libraryapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "application.mail.dispatcher")
+public class MailDispatcherProperties {
+
+    // async (queue + worker pool) or sync (send on the calling thread)
+    private String mode = "async";
+
+    private int queueCapacity = 1000;
+
+    private int workers = 2;
+
+    private int recipientsPerMessage = 50;
+
+    // messages sent over the same SMTP connection
+    private int messagesPerConnection = 20;
+
+    private int maxAttempts = 3;
+
+    private long backoffMillis = 500;
+
+    private long shutdownTimeoutMillis = 10000;
+}
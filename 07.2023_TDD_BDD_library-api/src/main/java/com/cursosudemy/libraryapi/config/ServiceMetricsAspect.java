@@ -0,0 +1,46 @@
+package com.cursosudemy.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/*
+    Times every method of BookService and LoanService (library.service, tagged by service, method and
+    exception). The percentiles and the histogram of the timer are configured in application.properties
+    (management.metrics.distribution.*), the same as the http.server.requests timer of the controllers.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    public static final String SERVICE_TIMER = "library.service";
+
+    private final MeterRegistry registry;
+
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.cursosudemy.libraryapi.service.BookService+.*(..)) " +
+            "|| execution(public * com.cursosudemy.libraryapi.service.LoanService+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(SERVICE_TIMER)
+                    .tag("service", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+}
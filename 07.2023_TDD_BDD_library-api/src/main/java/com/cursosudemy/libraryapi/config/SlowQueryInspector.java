@@ -0,0 +1,109 @@
+package com.cursosudemy.libraryapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Logs and counts (hibernate.statements.slow) the SQL statements slower than the threshold.
+    The data source is wrapped (see MetricsConfig), so each statement keeps the SQL it was prepared with and
+    times its own executions: nothing is shared between statements, sessions, threads or session factories.
+    A batch is timed as a whole and logged with the SQL of its statement.
+ */
+@Slf4j
+@Component
+public class SlowQueryInspector {
+
+    public static final String SLOW_STATEMENTS_COUNTER = "hibernate.statements.slow";
+
+    private final Counter slowStatements;
+
+    private final long thresholdNanos;
+
+    public SlowQueryInspector(MeterRegistry registry,
+                              @Value("${application.jpa.slow-query-threshold-ms:200}") long thresholdMillis) {
+        this.slowStatements = Counter.builder(SLOW_STATEMENTS_COUNTER)
+                .description("SQL statements slower than application.jpa.slow-query-threshold-ms")
+                .register(registry);
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, (method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            return result instanceof Connection ? connection((Connection) result) : result;
+        });
+    }
+
+    void executed(String sql, long elapsedNanos) {
+        if(elapsedNanos >= thresholdNanos) {
+            slowStatements.increment();
+            log.warn("slow statement ({} ms): {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql);
+        }
+    }
+
+    private Connection connection(Connection connection) {
+        return proxy(Connection.class, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            if(!(result instanceof Statement)) {
+                return result;
+            }
+
+            // prepareStatement and prepareCall receive the SQL, createStatement gets it on each execute
+            String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+            return statement(method.getReturnType(), (Statement) result, sql);
+        });
+    }
+
+    private <T> T statement(Class<T> type, Statement statement, String preparedSql) {
+        return proxy(type, (method, args) -> {
+            if(!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                executed(sql, System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Call call) {
+        // the proxies are kept in hash maps by Hibernate, equals and hashCode are those of the proxy itself
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if(method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if(method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            return call.invoke(method, args);
+        });
+    }
+
+    private interface Call {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+}
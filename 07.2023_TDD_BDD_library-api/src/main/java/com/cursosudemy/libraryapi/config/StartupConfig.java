@@ -0,0 +1,43 @@
+package com.cursosudemy.libraryapi.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+
+@Configuration
+public class StartupConfig {
+
+    // static: post processors are created before the other beans of this configuration
+    @Bean
+    public static BeanStartupRecorder beanStartupRecorder() {
+        return new BeanStartupRecorder();
+    }
+
+    @Bean
+    public StartupEndpoint startupEndpoint(BeanStartupRecorder beanStartupRecorder) {
+        return new StartupEndpoint(beanStartupRecorder);
+    }
+
+    /*
+        With spring.main.lazy-initialization (fast-startup profile) the controllers stay eager, so the first
+        requests do not pay for them, and so do the beans with @Scheduled methods, that are only scheduled
+        when created.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerWebAndScheduledBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (AnnotatedElementUtils.hasAnnotation(beanType, Controller.class)
+                || AnnotatedElementUtils.hasAnnotation(beanType, ControllerAdvice.class)
+                || hasScheduledMethods(beanType));
+    }
+
+    static boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package com.cursosudemy.libraryapi.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// /actuator/startup: time until the application was ready and the creation time of each bean
+@Endpoint(id = "startup")
+public class StartupEndpoint {
+
+    private final BeanStartupRecorder recorder;
+
+    private volatile Long readyMillis;
+
+    public StartupEndpoint(BeanStartupRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready(ApplicationReadyEvent event) {
+        readyMillis = event.getTimestamp() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    @ReadOperation
+    public Map<String, Object> startup() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("readyMillis", readyMillis);
+        report.put("beans", recorder.getStartups());
+        return report;
+    }
+}
@@ -0,0 +1,53 @@
+package com.cursosudemy.libraryapi.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// application.execution.threads=virtual: the requests, the streamed responses and the @Scheduled tasks run on virtual threads
+@Configuration
+@ConditionalOnProperty(name = "application.execution.threads", havingValue = ExecutionThreads.VIRTUAL)
+public class VirtualThreadsConfig implements SchedulingConfigurer {
+
+    private final ExecutionThreads executionThreads;
+
+    public VirtualThreadsConfig(ExecutionThreads executionThreads) {
+        this.executionThreads = executionThreads;
+    }
+
+    // replaces Tomcat's pool, server.tomcat.max-threads no longer limits the requests handled at the same time
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executionThreads.newThreadPerTaskExecutor("http-"));
+    }
+
+    // the NDJSON streams are written by the async request processing, one virtual thread each
+    @Bean
+    public WebMvcConfigurer virtualThreadsAsyncSupportConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(executionThreads.newThreadPerTaskExecutor("mvc-async-")));
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService virtualThreadsScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(executionThreads.threadFactory("scheduling-"));
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setScheduler(virtualThreadsScheduler());
+    }
+}
@@ -3,7 +3,9 @@ package com.cursosudemy.libraryapi.model.entity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.*;
 import java.util.List;
@@ -13,12 +15,14 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_book_isbn", columnList = "isbn"))
 public class Book {
 
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY so the inserts can be batched by Hibernate
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -30,6 +34,14 @@ public class Book {
     @Column
     private String isbn;
 
+    // optimistic locking, also the ETag of GET /api/books/{id}
+    @Version
+    @Column
+    private Long version;
+
+    // left out of toString, equals and hashCode, so they never load the loans outside of a transaction
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
     private List<Loan> loans;
 
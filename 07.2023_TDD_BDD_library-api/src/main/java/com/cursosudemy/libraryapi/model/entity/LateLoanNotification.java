@@ -0,0 +1,34 @@
+package com.cursosudemy.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/*
+    One row per customer notified about late loans in a day. The unique constraint is what guarantees that
+    a customer is not e-mailed twice on the same day, even by concurrent partitions or application instances.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_late_loan_notification",
+        columnNames = {"customer_email", "notification_date"}))
+public class LateLoanNotification {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_email", nullable = false)
+    private String customerEmail;
+
+    @Column(name = "notification_date", nullable = false)
+    private LocalDate notificationDate;
+}
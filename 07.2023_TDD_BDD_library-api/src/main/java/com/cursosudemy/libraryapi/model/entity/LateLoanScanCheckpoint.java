@@ -0,0 +1,46 @@
+package com.cursosudemy.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/*
+    A partition of the daily late-loan scan: the loans with id in (firstLoanId, lastLoanId].
+    checkpointLoanId is the last loan already processed, a restarted scan continues after it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_late_loan_scan_checkpoint",
+        columnNames = {"scan_date", "partition_index"}))
+public class LateLoanScanCheckpoint {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "scan_date", nullable = false)
+    private LocalDate scanDate;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    @Column(nullable = false)
+    private Long firstLoanId;
+
+    @Column(nullable = false)
+    private Long lastLoanId;
+
+    @Column(nullable = false)
+    private Long checkpointLoanId;
+
+    @Column(nullable = false)
+    private Boolean completed;
+}
@@ -13,6 +13,12 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @Builder
 @Entity
+// the schema is generated by Hibernate, so the indexes of the filters of LoanSpecifications are declared here
+// (and the one of the daily roll of OverdueLoanTracker)
+@Table(indexes = {
+        @Index(name = "idx_loan_customer", columnList = "customer, id"),
+        @Index(name = "idx_loan_book", columnList = "id_book, id"),
+        @Index(name = "idx_loan_date", columnList = "loanDate")})
 public class Loan {
 
     @Id
@@ -35,4 +41,7 @@ public class Loan {
 
     @Column
     private Boolean returned;
+
+    @Column
+    private LocalDate returnDate;
 }
@@ -0,0 +1,46 @@
+package com.cursosudemy.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/*
+    Returned loans moved out of the Loan table by LoanArchiver. They keep the id they had in Loan.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "loan_archive", indexes = {
+        @Index(name = "idx_loan_archive_customer", columnList = "customer, id"),
+        @Index(name = "idx_loan_archive_book", columnList = "id_book, id")})
+public class LoanArchive {
+
+    @Id
+    @Column
+    private Long id;
+
+    @Column(length = 100)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @JoinColumn(name = "id_book")
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Book book;
+
+    @Column
+    private LocalDate loanDate;
+
+    @Column
+    private LocalDate returnDate;
+
+    @Column
+    private LocalDate archiveDate;
+}
@@ -0,0 +1,50 @@
+package com.cursosudemy.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/*
+    A change of a book or loan, saved in the transaction of the change (transactional outbox) and removed
+    once OutboxRelay has handed it to the sinks. The id gives the order of the changes of a transaction;
+    the ids are allocated in blocks by each instance, so they only roughly order the changes of different ones.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED, RETURNED }
+
+    @Id
+    @Column
+    // pooled sequence instead of IDENTITY so the events of an import are inserted in batches with the books
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    // "book" or "loan"
+    @Column(length = 20)
+    private String aggregateType;
+
+    @Column
+    private Long aggregateId;
+
+    @Column(length = 20)
+    @Enumerated(EnumType.STRING)
+    private Type type;
+
+    // state of the book or loan after the change, as JSON
+    @Column(length = 4000)
+    private String payload;
+
+    @Column
+    private LocalDateTime createdAt;
+}
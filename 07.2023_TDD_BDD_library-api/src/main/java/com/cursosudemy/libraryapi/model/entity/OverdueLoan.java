@@ -0,0 +1,32 @@
+package com.cursosudemy.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/*
+    The open loans past their loan days, kept by OverdueLoanTracker. They have the id of the loan, the late
+    loan queries read this table instead of filtering every loan by date.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "overdue_loan")
+public class OverdueLoan {
+
+    @Id
+    @Column
+    private Long id;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column
+    private LocalDate loanDate;
+}
@@ -0,0 +1,47 @@
+package com.cursosudemy.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/*
+    A change event relayed to the event topic (EventTopicSink), copied from the outbox.
+    The offset is the position of the event in the topic, given when it is relayed (see EventTopicSink);
+    eventId is the id of the outbox event, unique so an event published again is not duplicated.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "published_event")
+public class PublishedEvent {
+
+    // OFFSET is a reserved word in SQL
+    @Id
+    @Column(name = "event_offset")
+    private Long offset;
+
+    @Column(unique = true, nullable = false)
+    private Long eventId;
+
+    @Column(length = 20)
+    private String aggregateType;
+
+    @Column
+    private Long aggregateId;
+
+    @Column(length = 20)
+    @Enumerated(EnumType.STRING)
+    private OutboxEvent.Type type;
+
+    @Column(length = 4000)
+    private String payload;
+
+    @Column
+    private LocalDateTime createdAt;
+}
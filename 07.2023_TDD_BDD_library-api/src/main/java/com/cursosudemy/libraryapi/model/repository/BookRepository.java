@@ -1,12 +1,48 @@
 package com.cursosudemy.libraryapi.model.repository;
 
 import com.cursosudemy.libraryapi.model.entity.Book;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import static com.cursosudemy.libraryapi.config.CacheConfig.BOOKS_BY_ISBN;
+import static com.cursosudemy.libraryapi.config.CacheConfig.BOOKS_ISBN_EXISTS;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/*
+    The isbn lookups are cached (see CacheConfig) and evicted by BookServiceImpl when a book is written.
+ */
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
+
+    @Cacheable(BOOKS_ISBN_EXISTS)
     boolean existsByIsbn(String isbn);
 
-    Optional<Book> findByIsbn(String isbn);
+    /*
+        Only the id is cached: a cached Book would be one managed instance (lazy loans, version) shared by every
+        thread and session. The book is loaded by id in the session of the caller (BookServiceImpl).
+     */
+    @Cacheable(BOOKS_BY_ISBN)
+    @Query("select b.id from Book b where b.isbn = :isbn")
+    Optional<Long> findIdByIsbn(@Param("isbn") String isbn);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+    // ids of every book, read by BookAvailabilityIndex when the application starts
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select b.id from Book b")
+    Stream<Long> streamIds();
+
+    // id, title and author of every book, read by BookSearchIndex when the application starts
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select b.id, b.title, b.author from Book b")
+    Stream<Object[]> streamSearchEntries();
 }
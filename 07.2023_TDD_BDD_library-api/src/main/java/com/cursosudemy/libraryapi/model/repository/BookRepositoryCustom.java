@@ -0,0 +1,20 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookRepositoryCustom {
+
+    // keyset pagination: the first limit books after the id, in id order, without a count query
+    List<Book> findAfter(Specification<Book> specification, Long afterId, int limit);
+
+    /*
+        The books of GET /api/books as NDJSON, projected into BookDTO in id order. Forward-only cursor: must be
+        consumed inside a transaction and closed afterwards (try-with-resources).
+     */
+    Stream<BookDTO> streamDtos(Specification<Book> specification);
+}
@@ -0,0 +1,59 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Book> findAfter(Specification<Book> specification, Long afterId, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Book> query = builder.createQuery(Book.class);
+        Root<Book> book = query.from(Book.class);
+
+        Predicate after = builder.greaterThan(book.get("id"), afterId);
+        Predicate predicate = specification.toPredicate(book, query, builder);
+        query.where(predicate == null ? after : builder.and(after, predicate));
+        query.orderBy(builder.asc(book.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<BookDTO> streamDtos(Specification<Book> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BookDTO> query = builder.createQuery(BookDTO.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(builder.construct(BookDTO.class,
+                book.get("id"), book.get("title"), book.get("author"), book.get("isbn")));
+
+        Predicate predicate = specification.toPredicate(book, query, builder);
+        if(predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(builder.asc(book.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HINT_FETCH_SIZE, 500)
+                .getResultStream();
+    }
+}
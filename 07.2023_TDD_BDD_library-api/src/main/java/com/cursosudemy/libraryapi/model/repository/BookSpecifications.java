@@ -0,0 +1,40 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    /*
+        Books whose title, author and isbn contain the ones of the filter, ignoring case, as the search by
+        example of BookServiceImpl.find. Only the fields supplied become part of the query, so a book with a
+        null column is not dropped by a filter that does not use it; without filters every book is matched.
+     */
+    public static Specification<Book> matching(Book filter) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            addContaining(predicates, root, builder, "title", filter.getTitle());
+            addContaining(predicates, root, builder, "author", filter.getAuthor());
+            addContaining(predicates, root, builder, "isbn", filter.getIsbn());
+
+            return predicates.isEmpty() ? null : builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static void addContaining(List<Predicate> predicates, Root<Book> root, CriteriaBuilder builder,
+                                      String attribute, String value) {
+        if(StringUtils.hasText(value)) {
+            predicates.add(builder.like(builder.lower(root.get(attribute)), "%" + value.toLowerCase() + "%"));
+        }
+    }
+}
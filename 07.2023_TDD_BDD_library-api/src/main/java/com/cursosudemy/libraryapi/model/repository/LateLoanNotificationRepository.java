@@ -0,0 +1,17 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.LateLoanNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface LateLoanNotificationRepository extends JpaRepository<LateLoanNotification, Long> {
+
+    @Query("select n.customerEmail from LateLoanNotification n " +
+            "where n.notificationDate = :date and n.customerEmail in :emails ")
+    List<String> findNotifiedEmails(@Param("date") LocalDate date, @Param("emails") Collection<String> emails);
+}
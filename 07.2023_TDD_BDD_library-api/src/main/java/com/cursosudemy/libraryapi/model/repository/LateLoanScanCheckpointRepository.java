@@ -0,0 +1,22 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.LateLoanScanCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LateLoanScanCheckpointRepository extends JpaRepository<LateLoanScanCheckpoint, Long> {
+
+    List<LateLoanScanCheckpoint> findByScanDateOrderByPartitionIndex(LocalDate scanDate);
+
+    @Modifying
+    @Query("update LateLoanScanCheckpoint c set c.checkpointLoanId = :checkpointLoanId, c.completed = :completed " +
+            "where c.id = :id ")
+    int updateCheckpoint(@Param("id") Long id,
+                         @Param("checkpointLoanId") Long checkpointLoanId,
+                         @Param("completed") boolean completed);
+}
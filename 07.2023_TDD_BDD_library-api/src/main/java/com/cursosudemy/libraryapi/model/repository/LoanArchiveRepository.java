@@ -0,0 +1,45 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.LoanArchive;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface LoanArchiveRepository extends JpaRepository<LoanArchive, Long> {
+
+    // copies the loans to the archive in a single statement, they are deleted from Loan in the same transaction
+    @Modifying
+    @Query(value = " insert into loan_archive (id, customer, customer_email, id_book, loan_date, return_date, archive_date) " +
+            "select id, customer, customer_email, id_book, loan_date, return_date, :archiveDate from loan where id in :ids ",
+            nativeQuery = true)
+    int copyFromLoans(@Param("ids") Collection<Long> ids, @Param("archiveDate") LocalDate archiveDate);
+
+    /*
+        The loans of the isbn or customer in both tables (full history), ordered by id. Each row is
+        id, customer, customer_email, book id, isbn, title and author. As in LoanRepository, only the filters
+        supplied (not null) are applied, in both tables and in the count; without filters every loan is read.
+     */
+    @Query(value = " select h.id, h.customer, h.customer_email, h.book_id, h.isbn, h.title, h.author from ( " +
+            "select l.id, l.customer, l.customer_email, b.id as book_id, b.isbn, b.title, b.author " +
+            "from loan l join book b on b.id = l.id_book " +
+            "where (:isbn is null and :customer is null) or b.isbn = :isbn or l.customer = :customer " +
+            "union all " +
+            "select a.id, a.customer, a.customer_email, b.id as book_id, b.isbn, b.title, b.author " +
+            "from loan_archive a join book b on b.id = a.id_book " +
+            "where (:isbn is null and :customer is null) or b.isbn = :isbn or a.customer = :customer " +
+            ") h order by h.id ",
+            countQuery = " select (select count(*) from loan l join book b on b.id = l.id_book " +
+                    "where (:isbn is null and :customer is null) or b.isbn = :isbn or l.customer = :customer) + " +
+                    "(select count(*) from loan_archive a join book b on b.id = a.id_book " +
+                    "where (:isbn is null and :customer is null) or b.isbn = :isbn or a.customer = :customer) ",
+            nativeQuery = true)
+    Page<Object[]> findHistoryByBookIsbnOrCustomer(@Param("isbn") String isbn,
+                                                   @Param("customer") String customer,
+                                                   Pageable pageable);
+}
@@ -1,28 +1,71 @@
 package com.cursosudemy.libraryapi.model.repository;
 
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface LoanRepository extends JpaRepository<Loan, Long>, JpaSpecificationExecutor<Loan>,
+        LoanRepositoryCustom {
 
     @Query(value = " select case when ( count(l.id) > 0 ) then true else false end " +
             "from Loan l where l.book = :book and (l.returned is null or l.returned is false) ")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
-    @Query(value = " select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer ")
-    Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn,
-                                        @Param("customer") String customer,
-                                        Pageable pageRequest);
     Page<Loan> findByBook(Book book, Pageable pageable);
 
-    @Query("select l from Loan l where l.loanDate <= :threeDaysAgo and (l.returned is null or l.returned is false) ")
-    List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+    // books with an open loan, read by BookAvailabilityIndex when the application starts
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select l.book.id from Loan l where l.returned is null or l.returned = false ")
+    Stream<Long> streamOpenLoanBookIds();
+
+    @Query(value = " select new com.cursosudemy.libraryapi.api.dto.LoanDto(" +
+            "l.id, l.customer, l.customerEmail, b.id, b.isbn, b.title, b.author) " +
+            "from Loan as l join l.book as b where b.id = :bookId ",
+            countQuery = " select count(l.id) from Loan as l where l.book.id = :bookId ")
+    Page<LoanDto> findDtoByBookId(@Param("bookId") Long bookId, Pageable pageable);
+
+    // the late loans are the ones in overdue_loan (see OverdueLoanTracker), not filtered by date here
+    @Query("select l from OverdueLoan o, Loan l where l.id = o.id order by l.id ")
+    List<Loan> findOverdue();
+
+    @Query("select min(o.id) from OverdueLoan o ")
+    Long findFirstLateLoanId();
+
+    @Query("select max(o.id) from OverdueLoan o ")
+    Long findLastLateLoanId();
+
+    // the late loans with id in (afterId, lastId], in id order (a chunk of a partition of the late-loan scan)
+    @Query(" select new com.cursosudemy.libraryapi.api.dto.LoanDto(" +
+            "l.id, l.customer, l.customerEmail, b.id, b.isbn, b.title, b.author) " +
+            "from OverdueLoan as o, Loan as l join l.book as b where l.id = o.id " +
+            "and o.id > :afterId and o.id <= :lastId " +
+            "order by o.id ")
+    List<LoanDto> findLateLoansBetween(@Param("afterId") Long afterId,
+                                       @Param("lastId") Long lastId,
+                                       Pageable pageable);
+
+    // loans returned up to the cutoff date (by loan date for the ones returned before the return date was kept)
+    @Query("select l.id from Loan l where l.returned = true and coalesce(l.returnDate, l.loanDate) <= :cutoff " +
+            "order by l.id ")
+    List<Long> findArchivableIds(@Param("cutoff") LocalDate cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Loan l where l.id in :ids ")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
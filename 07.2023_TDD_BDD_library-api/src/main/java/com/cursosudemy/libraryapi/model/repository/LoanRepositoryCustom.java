@@ -0,0 +1,25 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface LoanRepositoryCustom {
+
+    // loans and books projected into LoanDto in a single statement, filtered by the specification
+    Page<LoanDto> findDtos(Specification<Loan> specification, Pageable pageable);
+
+    // keyset pagination: the first limit loans after the id, in id order, without a count query
+    List<LoanDto> findDtosAfter(Specification<Loan> specification, Long afterId, int limit);
+
+    /*
+        The loans of GET /api/loans as NDJSON, projected into LoanDto in id order. Forward-only cursor: must be
+        consumed inside a transaction and closed afterwards (try-with-resources).
+     */
+    Stream<LoanDto> streamDtos(Specification<Loan> specification);
+}
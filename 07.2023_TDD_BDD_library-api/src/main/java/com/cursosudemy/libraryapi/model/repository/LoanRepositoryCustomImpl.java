@@ -0,0 +1,113 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<LoanDto> findDtos(Specification<Loan> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<LoanDto> query = builder.createQuery(LoanDto.class);
+        Root<Loan> loan = selectDtos(query, builder);
+
+        Predicate predicate = specification.toPredicate(loan, query, builder);
+        if(predicate != null) {
+            query.where(predicate);
+        }
+        if(pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), loan, builder));
+        }
+
+        TypedQuery<LoanDto> typedQuery = entityManager.createQuery(query);
+        if(pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        // the count is only issued when the page is full (as the @Query methods do)
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(specification));
+    }
+
+    @Override
+    public List<LoanDto> findDtosAfter(Specification<Loan> specification, Long afterId, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<LoanDto> query = builder.createQuery(LoanDto.class);
+        Root<Loan> loan = selectDtos(query, builder);
+
+        Predicate after = builder.greaterThan(loan.get("id"), afterId);
+        Predicate predicate = specification.toPredicate(loan, query, builder);
+        query.where(predicate == null ? after : builder.and(after, predicate));
+        query.orderBy(builder.asc(loan.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<LoanDto> streamDtos(Specification<Loan> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<LoanDto> query = builder.createQuery(LoanDto.class);
+        Root<Loan> loan = selectDtos(query, builder);
+
+        Predicate predicate = specification.toPredicate(loan, query, builder);
+        if(predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(builder.asc(loan.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HINT_FETCH_SIZE, 500)
+                .getResultStream();
+    }
+
+    // the loan joined with its book, projected into LoanDto
+    private static Root<Loan> selectDtos(CriteriaQuery<LoanDto> query, CriteriaBuilder builder) {
+        Root<Loan> loan = query.from(Loan.class);
+        Join<Loan, Book> book = loan.join("book");
+        query.select(builder.construct(LoanDto.class,
+                loan.get("id"), loan.get("customer"), loan.get("customerEmail"),
+                book.get("id"), book.get("isbn"), book.get("title"), book.get("author")));
+        return loan;
+    }
+
+    private long count(Specification<Loan> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Loan> loan = query.from(Loan.class);
+        query.select(builder.count(loan));
+
+        Predicate predicate = specification.toPredicate(loan, query, builder);
+        if(predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
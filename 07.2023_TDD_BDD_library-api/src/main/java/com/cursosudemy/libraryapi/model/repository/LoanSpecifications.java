@@ -0,0 +1,51 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LoanSpecifications {
+
+    private LoanSpecifications() {
+    }
+
+    /*
+        Loans of the isbn or of the customer. Only the filters supplied become part of the query, so a single
+        filter is a plain equality the indexes of Book (isbn) and Loan (customer) can answer; without filters
+        every loan is matched.
+     */
+    public static Specification<Loan> byIsbnOrCustomer(String isbn, String customer) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if(StringUtils.hasText(isbn)) {
+                predicates.add(builder.equal(book(root).get("isbn"), isbn));
+            }
+            if(StringUtils.hasText(customer)) {
+                predicates.add(builder.equal(root.get("customer"), customer));
+            }
+
+            if(predicates.isEmpty()) {
+                return null;
+            }
+            return predicates.size() == 1 ? predicates.get(0) : builder.or(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // reuses the join of the book when the query already has one (the projection of LoanRepositoryCustomImpl)
+    @SuppressWarnings("unchecked")
+    private static Join<Loan, Book> book(Root<Loan> root) {
+        for (Join<Loan, ?> join : root.getJoins()) {
+            if(join.getAttribute().getName().equals("book")) {
+                return (Join<Loan, Book>) join;
+            }
+        }
+        return root.join("book");
+    }
+}
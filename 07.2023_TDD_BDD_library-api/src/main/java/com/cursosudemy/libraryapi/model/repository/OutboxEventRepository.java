@@ -0,0 +1,21 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // the oldest events not relayed yet
+    List<OutboxEvent> findByOrderByIdAsc(Pageable pageable);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id in :ids ")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,42 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.OverdueLoan;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+public interface OverdueLoanRepository extends JpaRepository<OverdueLoan, Long> {
+
+    // the open loans of loan date in (from, threshold] not tracked yet, read by the loan date index
+    @Modifying
+    @Query(value = " insert into overdue_loan (id, customer_email, loan_date) " +
+            "select l.id, l.customer_email, l.loan_date from loan l " +
+            "where l.loan_date > :from and l.loan_date <= :threshold and (l.returned is null or l.returned = false) " +
+            "and not exists (select 1 from overdue_loan o where o.id = l.id) ",
+            nativeQuery = true)
+    int insertOpenLoansBetween(@Param("from") LocalDate from, @Param("threshold") LocalDate threshold);
+
+    @Modifying
+    @Query(value = " insert into overdue_loan (id, customer_email, loan_date) " +
+            "select l.id, l.customer_email, l.loan_date from loan l " +
+            "where l.loan_date <= :threshold and (l.returned is null or l.returned = false) " +
+            "and not exists (select 1 from overdue_loan o where o.id = l.id) ",
+            nativeQuery = true)
+    int insertOpenLoansUntil(@Param("threshold") LocalDate threshold);
+
+    // the rows of loans returned, deleted or no longer past the threshold
+    @Modifying
+    @Query(value = " delete from overdue_loan o where not exists (select 1 from loan l where l.id = o.id " +
+            "and l.loan_date <= :threshold and (l.returned is null or l.returned = false)) ",
+            nativeQuery = true)
+    int deleteNotOverdue(@Param("threshold") LocalDate threshold);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OverdueLoan o where o.id = :id ")
+    int deleteByLoanId(@Param("id") Long id);
+}
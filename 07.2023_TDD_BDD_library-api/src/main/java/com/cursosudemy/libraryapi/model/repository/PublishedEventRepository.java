@@ -0,0 +1,47 @@
+package com.cursosudemy.libraryapi.model.repository;
+
+import com.cursosudemy.libraryapi.model.entity.PublishedEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface PublishedEventRepository extends JpaRepository<PublishedEvent, Long> {
+
+    /*
+        The events are still in the outbox when they are published, the ones published before are skipped.
+        They take the offsets after the last one of the topic, in the order of their ids; the last offset is
+        read in the inserting transaction, so two relays at the same time take the same offsets and the second
+        one fails on the primary key instead of committing offsets below the ones already read.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = " insert into published_event (event_offset, event_id, aggregate_type, aggregate_id, type, payload, created_at) " +
+            "select (select coalesce(max(p.event_offset), -1) from published_event p) + row_number() over (order by o.id), " +
+            "o.id, o.aggregate_type, o.aggregate_id, o.type, o.payload, o.created_at from outbox_event o " +
+            "where o.id in :ids and not exists (select 1 from published_event p where p.event_id = o.id) ",
+            nativeQuery = true)
+    int insertFromOutbox(@Param("ids") Collection<Long> ids);
+
+    List<PublishedEvent> findByOffsetGreaterThanEqualOrderByOffsetAsc(Long offset, Pageable pageable);
+
+    @Query("select e.offset from PublishedEvent e order by e.offset desc ")
+    List<Long> findOffsetsNewestFirst(Pageable pageable);
+
+    @Query("select min(e.offset) from PublishedEvent e ")
+    Optional<Long> findFirstOffset();
+
+    @Query("select max(e.offset) from PublishedEvent e ")
+    Optional<Long> findLastOffset();
+
+    @Transactional
+    @Modifying
+    @Query("delete from PublishedEvent e where e.offset <= :offset ")
+    int deleteUntil(@Param("offset") Long offset);
+}
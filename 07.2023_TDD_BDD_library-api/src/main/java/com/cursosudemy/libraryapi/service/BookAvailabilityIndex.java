@@ -0,0 +1,166 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/*
+    In-memory availability of the books: two bitmaps indexed by book id, the existing books and the books
+    with an open loan (one bit per id, about 1.2 MB for ten million ids). They are loaded when the
+    application starts and kept up to date by BookServiceImpl and LoanServiceImpl, only after the transaction
+    of the write commits.
+
+    Only the writes of this instance reach the index, so its bits are hints. A book seen as loaned is
+    confirmed in the database before a loan is refused (isLoaned), and the bit is cleared when the loan was
+    returned elsewhere (another instance, SQL). A book seen as available is still checked by the unique index
+    of the open loans when the loan is saved, so a stale entry can not lend a book twice, and the refusal
+    marks it as loaned again. The whole index is also reloaded periodically by ScheduleService.
+ */
+@Slf4j
+@Component
+public class BookAvailabilityIndex {
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+
+    private final BitSet books = new BitSet();
+    private final BitSet loaned = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookAvailabilityIndex(BookRepository bookRepository, LoanRepository loanRepository) {
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long start = System.currentTimeMillis();
+        BitSet loadedBooks = new BitSet();
+        BitSet loadedLoans = new BitSet();
+
+        try (Stream<Long> ids = bookRepository.streamIds()) {
+            ids.forEach(id -> loadedBooks.set(bit(id)));
+        }
+        try (Stream<Long> ids = loanRepository.streamOpenLoanBookIds()) {
+            ids.forEach(id -> loadedLoans.set(bit(id)));
+        }
+
+        lock.writeLock().lock();
+        try {
+            books.clear();
+            books.or(loadedBooks);
+            loaned.clear();
+            loaned.or(loadedLoans);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("book availability index loaded with {} books, {} loaned, in {} ms",
+                loadedBooks.cardinality(), loadedLoans.cardinality(), System.currentTimeMillis() - start);
+    }
+
+    public void addBook(Long id) {
+        afterCommit(() -> write(() -> books.set(bit(id))));
+    }
+
+    public void removeBook(Long id) {
+        afterCommit(() -> write(() -> {
+            books.clear(bit(id));
+            loaned.clear(bit(id));
+        }));
+    }
+
+    // the book of a loan just saved or updated is loaned while the loan is not returned
+    public void update(Loan loan) {
+        Long bookId = loan.getBook().getId();
+        boolean open = !Boolean.TRUE.equals(loan.getReturned());
+        afterCommit(() -> write(() -> loaned.set(bit(bookId), open)));
+    }
+
+    // a stale loaned bit would refuse the book until the next reload, so it is confirmed in the database
+    public boolean isLoaned(Book book) {
+        if(isAvailable(book.getId())) {
+            return false;
+        }
+
+        if(loanRepository.existsByBookAndNotReturned(book)) {
+            return true;
+        }
+
+        log.debug("book {} was returned outside of this instance", book.getId());
+        write(() -> loaned.clear(bit(book.getId())));
+        return false;
+    }
+
+    public boolean isAvailable(Long bookId) {
+        lock.readLock().lock();
+        try {
+            return !loaned.get(bit(bookId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ids of up to limit existing books without an open loan, after afterId in id order
+    public List<Long> findAvailableAfter(Long afterId, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+
+        lock.readLock().lock();
+        try {
+            int id = books.nextSetBit(bit(afterId) + 1);
+            while (id >= 0 && ids.size() < limit) {
+                if(!loaned.get(id)) {
+                    ids.add((long) id);
+                }
+                id = books.nextSetBit(id + 1);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return ids;
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int bit(Long id) {
+        return Math.toIntExact(id);
+    }
+
+    // the index only changes when the data is really in the database
+    private void afterCommit(Runnable action) {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
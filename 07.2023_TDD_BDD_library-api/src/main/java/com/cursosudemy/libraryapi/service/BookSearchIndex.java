@@ -0,0 +1,226 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+    In-memory trigram index over the title and author of the books. Every word is indexed padded like
+    "  word " so queries shorter than three letters still match the beginning of the words.
+
+    A book matches when at least min-similarity of the query trigrams are found in it (so small typos are
+    tolerated) and the results are ranked by that similarity, with the books containing the whole query
+    first. The index is loaded when the application starts and kept up to date by BookServiceImpl, only
+    after the transaction of the write commits.
+ */
+@Slf4j
+@Component
+public class BookSearchIndex {
+
+    private final BookRepository repository;
+    private final double minSimilarity;
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, String> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public BookSearchIndex(BookRepository repository,
+                           @Value("${application.books.search.min-similarity:0.5}") double minSimilarity) {
+        this.repository = repository;
+        this.minSimilarity = minSimilarity;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long start = System.currentTimeMillis();
+
+        try (Stream<Object[]> books = repository.streamSearchEntries()) {
+            Iterator<Object[]> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Object[] book = iterator.next();
+                put((Long) book[0], (String) book[1], (String) book[2]);
+            }
+        }
+
+        log.info("book search index loaded with {} books in {} ms", size(), System.currentTimeMillis() - start);
+    }
+
+    public void index(Book book) {
+        afterCommit(() -> put(book.getId(), book.getTitle(), book.getAuthor()));
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeDocument(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /*
+        Returns the ids of the matching books, best ranked first.
+     */
+    public List<Long> search(String text) {
+        String query = normalize(text);
+        Set<String> queryTrigrams = queryTrigrams(query);
+        if(queryTrigrams.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> matches = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                Set<Long> ids = postings.get(trigram);
+                if(ids != null) {
+                    ids.forEach(id -> matches.merge(id, 1, Integer::sum));
+                }
+            }
+
+            matches.forEach((id, count) -> {
+                double similarity = (double) count / queryTrigrams.size();
+                if(similarity >= minSimilarity) {
+                    scores.put(id, documents.get(id).contains(query) ? similarity + 1 : similarity);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return scores.entrySet()
+                .stream()
+                .sorted(Comparator.<Map.Entry<Long, Double>>comparingDouble(Map.Entry::getValue).reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Long id, String title, String author) {
+        String document = normalize(title) + " " + normalize(author);
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            documents.put(id, document);
+            for (String trigram : trigrams(document)) {
+                postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeDocument(Long id) {
+        String document = documents.remove(id);
+        if(document == null) {
+            return;
+        }
+
+        for (String trigram : trigrams(document)) {
+            Set<Long> ids = postings.get(trigram);
+            if(ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    // the index only changes when the data is really in the database
+    private void afterCommit(Runnable action) {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // lower case and without accents, so "Ação" is found by "acao"
+    static String normalize(String text) {
+        if(text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{Alnum}]+", " ")
+                .trim();
+    }
+
+    static Set<String> trigrams(String document) {
+        Set<String> trigrams = new HashSet<>();
+        for (String word : words(document)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    // inner trigrams of the query words, so a query matches in the middle of the words too
+    static Set<String> queryTrigrams(String query) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String word : words(query)) {
+            if(word.length() < 3) {
+                trigrams.add(("  " + word).substring(word.length() - 1, word.length() + 2));
+                continue;
+            }
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                trigrams.add(word.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split(" ")) {
+            if(!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -1,16 +1,22 @@
 package com.cursosudemy.libraryapi.service;
 
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.api.dto.BookImportResultDTO;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
     Book save(Book any);
 
     Optional<Book> getById(Long id);
 
+    Optional<Long> getCachedVersion(Long id);
+
     void delete(Book book);
 
     Book update(Book book);
@@ -18,4 +24,14 @@ public interface BookService {
     Page<Book> find(Book filter, Pageable pageRequest);
 
     Optional<Book> getBookByIsbn(String s);
+
+    List<BookImportResultDTO> importBooks(List<Book> books);
+
+    List<Book> findAfter(Book filter, Long afterId, int limit);
+
+    Page<Book> search(String text, Pageable pageRequest);
+
+    void streamDtos(Book filter, Consumer<BookDTO> consumer);
+
+    List<Long> findAvailableIdsAfter(Long afterId, int limit);
 }
@@ -0,0 +1,65 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Last known version of the books, so a conditional GET (If-None-Match) of an unchanged book is answered
+    without reading it. BookServiceImpl records the version of every book it reads or writes.
+
+    The writes are recorded after the commit: the version of a book is only incremented when the transaction
+    flushes it, and the index must never hold a version other clients can not read yet.
+    Only the writes of this instance update the index, so the entries expire after ttl-seconds to bound how
+    long a change made by another instance can go unnoticed.
+ */
+@Component
+public class BookVersionIndex {
+
+    private final Cache<Long, Long> versions;
+
+    public BookVersionIndex(@Value("${application.books.version-index.maximum-size:100000}") long maximumSize,
+                            @Value("${application.books.version-index.ttl-seconds:60}") long ttlSeconds) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public Optional<Long> get(Long id) {
+        return Optional.ofNullable(versions.getIfPresent(id));
+    }
+
+    public void put(Book book) {
+        afterCommit(() -> {
+            if(book.getId() != null && book.getVersion() != null) {
+                versions.put(book.getId(), book.getVersion());
+            }
+        });
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> versions.invalidate(id));
+    }
+
+    // the index only changes when the data is really in the database
+    private void afterCommit(Runnable action) {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.model.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+    Records the changes of the books and loans in the outbox. It only runs inside the transaction of the
+    change (MANDATORY), so an event exists if and only if its change was committed.
+ */
+@Component
+public class ChangeEventPublisher {
+
+    public static final String BOOK = "book";
+    public static final String LOAN = "loan";
+
+    private final OutboxEventRepository repository;
+
+    // dates as ISO strings, like the responses of the API
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    public ChangeEventPublisher(OutboxEventRepository repository) {
+        this.repository = repository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void book(OutboxEvent.Type type, Book book) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", book.getId());
+        payload.put("title", book.getTitle());
+        payload.put("author", book.getAuthor());
+        payload.put("isbn", book.getIsbn());
+
+        record(BOOK, book.getId(), type, payload);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loan(OutboxEvent.Type type, Loan loan) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", loan.getId());
+        payload.put("bookId", loan.getBook().getId());
+        payload.put("customer", loan.getCustomer());
+        payload.put("customerEmail", loan.getCustomerEmail());
+        payload.put("loanDate", loan.getLoanDate());
+        payload.put("returned", loan.getReturned());
+        payload.put("returnDate", loan.getReturnDate());
+
+        record(LOAN, loan.getId(), type, payload);
+    }
+
+    private void record(String aggregateType, Long aggregateId, OutboxEvent.Type type, Map<String, Object> payload) {
+        try {
+            repository.save(OutboxEvent.builder()
+                    .aggregateType(aggregateType)
+                    .aggregateId(aggregateId)
+                    .type(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the " + aggregateType + " " + aggregateId, e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+
+import java.util.List;
+
+/*
+    Destination of the events relayed by OutboxRelay, in id order. An exception stops the relay and the
+    same events are handed again on the next run, so the sinks may see an event more than once.
+ */
+public interface ChangeEventSink {
+
+    void publish(List<OutboxEvent> events);
+}
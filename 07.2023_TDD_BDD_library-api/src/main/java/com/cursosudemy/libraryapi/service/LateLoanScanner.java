@@ -0,0 +1,245 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
+import com.cursosudemy.libraryapi.config.ExecutionThreads;
+import com.cursosudemy.libraryapi.model.entity.LateLoanNotification;
+import com.cursosudemy.libraryapi.model.entity.LateLoanScanCheckpoint;
+import com.cursosudemy.libraryapi.model.repository.LateLoanNotificationRepository;
+import com.cursosudemy.libraryapi.model.repository.LateLoanScanCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/*
+    Daily scan of the late loans. The id range of the late loans is split into partitions that are scanned in
+    parallel, chunk by chunk. For every chunk, one transaction records the customers notified today
+    (LateLoanNotification) and advances the checkpoint of the partition (LateLoanScanCheckpoint); the e-mails
+    are sent after the commit, only to the customers not notified yet.
+
+    The partitions claim their customers concurrently: the unique constraint of LateLoanNotification decides
+    between them (in this instance or another one) and the losing claim reads the notified customers again.
+    If the application stops during the scan, the unfinished partitions continue from their checkpoints when
+    it starts again, in background. A customer is never e-mailed twice on the same day: a crash between the commit and the
+    sending loses that chunk's e-mails instead of repeating them.
+ */
+@Slf4j
+@Service
+public class LateLoanScanner {
+
+    // retries of a claim beyond one per concurrent partition of this instance (the other instances)
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final LoanService loanService;
+    private final EmailService emailService;
+    private final LateLoanNotificationRepository notificationRepository;
+    private final LateLoanScanCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutionThreads executionThreads;
+    private final OverdueLoanTracker overdueLoanTracker;
+
+    // runs the scan resumed at startup, so the application is ready without waiting for it
+    private final ExecutorService resumeExecutor;
+
+    @Value("${application.mail.lateloans.message}")
+    private String message;
+
+    @Value("${application.mail.lateloans.batch-size:100}")
+    private int batchSize;
+
+    @Value("${application.mail.lateloans.partitions:4}")
+    private int partitions;
+
+    public LateLoanScanner(LoanService loanService,
+                           EmailService emailService,
+                           LateLoanNotificationRepository notificationRepository,
+                           LateLoanScanCheckpointRepository checkpointRepository,
+                           PlatformTransactionManager transactionManager,
+                           ExecutionThreads executionThreads,
+                           OverdueLoanTracker overdueLoanTracker) {
+        this.loanService = loanService;
+        this.emailService = emailService;
+        this.notificationRepository = notificationRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executionThreads = executionThreads;
+        this.overdueLoanTracker = overdueLoanTracker;
+        this.resumeExecutor = Executors.newSingleThreadExecutor(executionThreads.threadFactory("late-loans-resume-"));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        resume();
+    }
+
+    // finishes in background the scan of today if the application stopped in the middle of it
+    public Future<?> resume() {
+        LocalDate today = LocalDate.now();
+        return resumeExecutor.submit(() -> {
+            boolean unfinished = checkpointRepository.findByScanDateOrderByPartitionIndex(today)
+                    .stream()
+                    .anyMatch(checkpoint -> !checkpoint.getCompleted());
+
+            if(unfinished) {
+                log.info("resuming the late loans scan of {}", today);
+                scan(today);
+            }
+        });
+    }
+
+    // the partitions interrupted here keep their checkpoints and are resumed by the next start
+    @PreDestroy
+    public void stop() {
+        resumeExecutor.shutdownNow();
+    }
+
+    public void scan(LocalDate scanDate) {
+        // the late loans of the scan are the overdue loans of the day
+        overdueLoanTracker.roll(scanDate);
+
+        List<LateLoanScanCheckpoint> pending = getOrCreatePartitions(scanDate)
+                .stream()
+                .filter(checkpoint -> !checkpoint.getCompleted())
+                .collect(Collectors.toList());
+
+        if(pending.isEmpty()) {
+            log.info("no late loans to scan on {}", scanDate);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(pending.size(),
+                executionThreads.threadFactory("late-loans-scan-"));
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (LateLoanScanCheckpoint checkpoint : pending) {
+                futures.add(executor.submit(() -> scanPartition(checkpoint, scanDate)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // the partition keeps its checkpoint and is resumed by the next scan of the day
+                    log.error("late loans scan of partition {} failed", pending.get(i).getPartitionIndex(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<LateLoanScanCheckpoint> getOrCreatePartitions(LocalDate scanDate) {
+        List<LateLoanScanCheckpoint> checkpoints = checkpointRepository.findByScanDateOrderByPartitionIndex(scanDate);
+        if(!checkpoints.isEmpty()) {
+            return checkpoints;
+        }
+
+        Optional<Long> firstLoanId = loanService.getFirstLateLoanId();
+        Optional<Long> lastLoanId = loanService.getLastLateLoanId();
+        if(!firstLoanId.isPresent() || !lastLoanId.isPresent()) {
+            return checkpoints;
+        }
+
+        long from = firstLoanId.get() - 1;
+        long size = lastLoanId.get() - from;
+        int count = (int) Math.min(Math.max(partitions, 1), size);
+        long step = (size + count - 1) / count;
+
+        for (int i = 0; i < count; i++) {
+            long first = from + i * step;
+            checkpoints.add(LateLoanScanCheckpoint.builder()
+                    .scanDate(scanDate)
+                    .partitionIndex(i)
+                    .firstLoanId(first)
+                    .lastLoanId(Math.min(first + step, lastLoanId.get()))
+                    .checkpointLoanId(first)
+                    .completed(false)
+                    .build());
+        }
+
+        try {
+            return checkpointRepository.saveAll(checkpoints);
+        } catch (DataIntegrityViolationException e) {
+            // another instance created the partitions of the day first
+            return checkpointRepository.findByScanDateOrderByPartitionIndex(scanDate);
+        }
+    }
+
+    private void scanPartition(LateLoanScanCheckpoint checkpoint, LocalDate scanDate) {
+        long checkpointLoanId = checkpoint.getCheckpointLoanId();
+        boolean completed = false;
+
+        while (!completed) {
+            List<LoanDto> loans = loanService.findLateLoansBetween(checkpointLoanId, checkpoint.getLastLoanId(), batchSize);
+            long nextCheckpoint = loans.isEmpty() ? checkpointLoanId : loans.get(loans.size() - 1).getId();
+            completed = loans.size() < batchSize;
+
+            List<String> customers = claim(checkpoint.getId(), loans, nextCheckpoint, completed, scanDate);
+            if(!customers.isEmpty()) {
+                emailService.sendMails(message, customers);
+            }
+
+            checkpointLoanId = nextCheckpoint;
+        }
+    }
+
+    /*
+        Records the customers of the chunk not notified yet today and advances the checkpoint, in one
+        transaction. Returns the customers to be e-mailed. The customers are inserted in e-mail order, so
+        concurrent claims of the same customers wait for each other instead of deadlocking.
+     */
+    private List<String> claim(Long checkpointId, List<LoanDto> loans, long nextCheckpoint, boolean completed,
+                               LocalDate scanDate) {
+        Set<String> emails = loans.stream()
+                .map(LoanDto::getCustomerEmail)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    List<String> customers = new ArrayList<>(emails);
+                    if(!emails.isEmpty()) {
+                        customers.removeAll(notificationRepository.findNotifiedEmails(scanDate, emails));
+                        notificationRepository.saveAll(customers.stream()
+                                .map(email -> LateLoanNotification.builder()
+                                        .customerEmail(email)
+                                        .notificationDate(scanDate)
+                                        .build())
+                                .collect(Collectors.toList()));
+                    }
+
+                    checkpointRepository.updateCheckpoint(checkpointId, nextCheckpoint, completed);
+                    return customers;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // another partition or instance notified some of these customers in the meantime, read them again
+                if(attempt >= partitions + MAX_CLAIM_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
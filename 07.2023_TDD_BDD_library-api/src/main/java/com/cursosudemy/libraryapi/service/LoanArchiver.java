@@ -0,0 +1,65 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.repository.LoanArchiveRepository;
+import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+    Moves the loans returned more than afterDays days ago from the Loan table to loan_archive, keeping the
+    table of the day-to-day queries (open loans, late loans, loans of a book) small.
+    Each batch is copied and deleted in its own transaction, so a failure keeps the batches already moved
+    and the next run continues from the remaining loans.
+ */
+@Slf4j
+@Service
+public class LoanArchiver {
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.loans.archive.after-days:90}")
+    private int afterDays;
+
+    @Value("${application.loans.archive.batch-size:500}")
+    private int batchSize;
+
+    public LoanArchiver(LoanRepository loanRepository,
+                        LoanArchiveRepository archiveRepository,
+                        PlatformTransactionManager transactionManager) {
+        this.loanRepository = loanRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // returns the number of archived loans
+    public int archive(LocalDate today) {
+        LocalDate cutoff = today.minusDays(afterDays);
+        int archived = 0;
+        int moved;
+
+        do {
+            moved = transactionTemplate.execute(status -> {
+                List<Long> ids = loanRepository.findArchivableIds(cutoff, PageRequest.of(0, batchSize));
+                if(ids.isEmpty()) {
+                    return 0;
+                }
+
+                archiveRepository.copyFromLoans(ids, today);
+                return loanRepository.deleteByIdIn(ids);
+            });
+            archived += moved;
+        } while (moved == batchSize);
+
+        log.info("{} loans returned until {} archived", archived, cutoff);
+        return archived;
+    }
+}
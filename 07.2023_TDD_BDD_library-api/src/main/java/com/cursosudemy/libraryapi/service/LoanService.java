@@ -1,5 +1,6 @@
 package com.cursosudemy.libraryapi.service;
 
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.model.entity.Loan;
 import com.cursosudemy.libraryapi.api.dto.LoanFilterDTO;
@@ -8,6 +9,7 @@ import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LoanService {
     Loan save(Loan loan);
@@ -20,5 +22,21 @@ public interface LoanService {
 
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    Page<LoanDto> findDtos(LoanFilterDTO loanFilterDTO, Pageable pageable);
+
+    Page<LoanDto> findDtosWithHistory(LoanFilterDTO loanFilterDTO, Pageable pageable);
+
+    Page<LoanDto> getLoanDtosByBook(Long bookId, Pageable pageable);
+
+    List<LoanDto> findDtosAfter(LoanFilterDTO loanFilterDTO, Long afterId, int limit);
+
+    void streamDtos(LoanFilterDTO loanFilterDTO, Consumer<LoanDto> consumer);
+
     List<Loan> getAllLateLoans();
+
+    Optional<Long> getFirstLateLoanId();
+
+    Optional<Long> getLastLateLoanId();
+
+    List<LoanDto> findLateLoansBetween(Long afterId, Long lastId, int limit);
 }
@@ -0,0 +1,70 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.model.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+    Drains the outbox in batches: the oldest events are handed to every sink and then deleted, batch after
+    batch until the outbox is empty. Delivery is at least once: if the application stops between the
+    publishing and the delete, the batch is published again (the event id identifies the duplicates).
+    Running on several instances at the same time also publishes some events twice.
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private final OutboxEventRepository repository;
+    private final List<ChangeEventSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.events.relay.batch-size:500}")
+    private int batchSize;
+
+    public OutboxRelay(OutboxEventRepository repository,
+                       ObjectProvider<ChangeEventSink> sinks,
+                       PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.sinks = sinks.orderedStream().collect(Collectors.toList());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // returns the number of relayed events, without sinks the events are kept
+    public synchronized int relay() {
+        if(sinks.isEmpty()) {
+            return 0;
+        }
+
+        int relayed = 0;
+        List<OutboxEvent> events;
+
+        do {
+            events = repository.findByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if(events.isEmpty()) {
+                break;
+            }
+
+            for (ChangeEventSink sink : sinks) {
+                sink.publish(events);
+            }
+
+            List<Long> ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+            transactionTemplate.execute(status -> repository.deleteByIdIn(ids));
+            relayed += events.size();
+        } while (events.size() == batchSize);
+
+        if(relayed > 0) {
+            log.debug("{} change events relayed", relayed);
+        }
+        return relayed;
+    }
+}
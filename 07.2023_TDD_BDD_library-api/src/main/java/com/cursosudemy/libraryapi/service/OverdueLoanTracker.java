@@ -0,0 +1,110 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.entity.OverdueLoan;
+import com.cursosudemy.libraryapi.model.repository.OverdueLoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/*
+    Keeps the overdue_loan table: the open loans with loan date up to today minus loanDays.
+    - a loan saved or updated is added or removed as it is open and past the threshold
+    - once a day the threshold rolls forward and only the loans of the days it passed are added
+    - on startup the table is refreshed against the loans, the rolls missed while the application was down
+      and the loans changed by other means (imports, SQL scripts) are caught up
+
+    The threshold of the last roll is kept in memory, so each instance rolls the days it has not seen yet;
+    the inserts skip the loans already tracked.
+ */
+@Slf4j
+@Service
+public class OverdueLoanTracker {
+
+    private final OverdueLoanRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int loanDays;
+
+    private LocalDate rolledThreshold;
+
+    public OverdueLoanTracker(OverdueLoanRepository repository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${application.loans.loan-days:4}") int loanDays) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loanDays = loanDays;
+    }
+
+    public LocalDate threshold(LocalDate today) {
+        return today.minusDays(loanDays);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        refresh(LocalDate.now());
+    }
+
+    public synchronized void refresh(LocalDate today) {
+        LocalDate threshold = threshold(today);
+        int[] changes = transactionTemplate.execute(status -> new int[]{
+                repository.deleteNotOverdue(threshold),
+                repository.insertOpenLoansUntil(threshold)});
+
+        rolledThreshold = threshold;
+        log.info("overdue loans refreshed until {}: {} removed, {} added", threshold, changes[0], changes[1]);
+    }
+
+    // adds the loans that became overdue since the last roll, a no-op when today was already rolled
+    public synchronized void roll(LocalDate today) {
+        if(rolledThreshold == null) {
+            refresh(today);
+            return;
+        }
+
+        LocalDate threshold = threshold(today);
+        if(!threshold.isAfter(rolledThreshold)) {
+            return;
+        }
+
+        LocalDate from = rolledThreshold;
+        int added = transactionTemplate.execute(status -> repository.insertOpenLoansBetween(from, threshold));
+
+        rolledThreshold = threshold;
+        log.info("overdue loans rolled until {}: {} added", threshold, added);
+    }
+
+    // a new loan is only overdue when it was saved with a past loan date
+    public void added(Loan loan) {
+        if(isOverdue(loan)) {
+            repository.save(toOverdueLoan(loan));
+        }
+    }
+
+    public void updated(Loan loan) {
+        if(isOverdue(loan)) {
+            repository.save(toOverdueLoan(loan));
+        } else {
+            repository.deleteByLoanId(loan.getId());
+        }
+    }
+
+    private boolean isOverdue(Loan loan) {
+        return !Boolean.TRUE.equals(loan.getReturned())
+                && loan.getLoanDate() != null
+                && !loan.getLoanDate().isAfter(threshold(LocalDate.now()));
+    }
+
+    private OverdueLoan toOverdueLoan(Loan loan) {
+        return OverdueLoan.builder()
+                .id(loan.getId())
+                .customerEmail(loan.getCustomerEmail())
+                .loanDate(loan.getLoanDate())
+                .build();
+    }
+}
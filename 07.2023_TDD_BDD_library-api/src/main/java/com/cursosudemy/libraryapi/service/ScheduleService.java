@@ -1,13 +1,10 @@
 package com.cursosudemy.libraryapi.service;
 
-import com.cursosudemy.libraryapi.model.entity.Loan;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
 
 @Service
 @RequiredArgsConstructor
@@ -15,18 +12,31 @@ public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
 
-    private final LoanService loanService;
-    private final EmailService emailService;
-
-    @Value("${application.mail.lateloans.message}")
-    private String message;
+    private final LateLoanScanner lateLoanScanner;
+    private final LoanArchiver loanArchiver;
+    private final OutboxRelay outboxRelay;
+    private final BookAvailabilityIndex availabilityIndex;
 
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendEmailToLateLoans() {
-        List<Loan> allLoans = loanService.getAllLateLoans();
-        List<String> mailsList = allLoans.stream().map(l -> l.getCustomerEmail()).collect(Collectors.toList());
+        lateLoanScanner.scan(LocalDate.now());
+    }
+
+    @Scheduled(cron = "${application.loans.archive.cron}")
+    public void archiveReturnedLoans() {
+        loanArchiver.archive(LocalDate.now());
+    }
+
+    @Scheduled(fixedDelayString = "${application.events.relay.delay-ms:1000}")
+    public void relayChangeEvents() {
+        outboxRelay.relay();
+    }
 
-        emailService.sendMails(message, mailsList);
+    // drops the bits left stale by the changes made outside of this instance
+    @Scheduled(fixedDelayString = "${application.books.availability.reload-ms:3600000}",
+            initialDelayString = "${application.books.availability.reload-ms:3600000}")
+    public void reloadBookAvailability() {
+        availabilityIndex.load();
     }
 
 }
@@ -0,0 +1,197 @@
+package com.cursosudemy.libraryapi.service.impl;
+
+import com.cursosudemy.libraryapi.config.ExecutionThreads;
+import com.cursosudemy.libraryapi.config.MailDispatcherProperties;
+import com.cursosudemy.libraryapi.service.EmailService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Queues the messages and sends them from a pool of workers. Each worker drains up to
+    messagesPerConnection messages and sends them with a single JavaMailSender.send call, so they share
+    one SMTP connection. When the queue is full the caller blocks until there is room (backpressure).
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "application.mail.dispatcher.mode", havingValue = "async", matchIfMissing = true)
+public class AsyncEmailServiceImpl implements EmailService {
+
+    private static final String SUBJECT = "Livro com empréstimo atrasado";
+
+    private final JavaMailSender javaMailSender;
+    private final MailDispatcherProperties properties;
+    private final ExecutionThreads executionThreads;
+    private final String remetent;
+
+    private final BlockingQueue<SimpleMailMessage> queue;
+    private final Timer sendTimer;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    public AsyncEmailServiceImpl(JavaMailSender javaMailSender,
+                                 MailDispatcherProperties properties,
+                                 ExecutionThreads executionThreads,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${application.mail.default-remetent}") String remetent) {
+        this.javaMailSender = javaMailSender;
+        this.properties = properties;
+        this.executionThreads = executionThreads;
+        this.remetent = remetent;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        Gauge.builder("mail.dispatcher.queue.size", queue, BlockingQueue::size)
+                .description("Messages waiting to be sent")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder("mail.dispatcher.send")
+                .description("Time spent sending a batch of messages over one SMTP connection")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("mail.dispatcher.messages.sent").register(meterRegistry);
+        this.failedCounter = Counter.builder("mail.dispatcher.messages.failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        this.workers = Executors.newFixedThreadPool(properties.getWorkers(),
+                executionThreads.threadFactory("mail-dispatcher-"));
+        this.running = true;
+
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            workers.execute(this::dispatch);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+
+        if(!workers.awaitTermination(properties.getShutdownTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+            log.warn("mail dispatcher stopped with {} messages not sent", queue.size());
+        }
+    }
+
+    @Override
+    public void sendMails(String message, List<String> mailsList) {
+        if(!running) {
+            throw new IllegalStateException("Mail dispatcher is not running");
+        }
+
+        int recipientsPerMessage = properties.getRecipientsPerMessage();
+
+        for (int from = 0; from < mailsList.size(); from += recipientsPerMessage) {
+            List<String> recipients = mailsList.subList(from, Math.min(from + recipientsPerMessage, mailsList.size()));
+
+            SimpleMailMessage mailMessage = new SimpleMailMessage();
+            mailMessage.setFrom(remetent);
+            mailMessage.setSubject(SUBJECT);
+            mailMessage.setText(message);
+            mailMessage.setTo(recipients.toArray(new String[recipients.size()]));
+
+            try {
+                queue.put(mailMessage);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing mail messages", e);
+            }
+        }
+    }
+
+    private void dispatch() {
+        List<SimpleMailMessage> batch = new ArrayList<>(properties.getMessagesPerConnection());
+
+        while (running || !queue.isEmpty()) {
+            try {
+                SimpleMailMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if(first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, properties.getMessagesPerConnection() - 1);
+
+                sendWithRetry(batch.toArray(new SimpleMailMessage[batch.size()]));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // keeps the worker alive
+                log.error("unexpected error sending mail messages", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendWithRetry(SimpleMailMessage[] messages) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                javaMailSender.send(messages);
+                sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                sentCounter.increment(messages.length);
+                return;
+            } catch (MailException e) {
+                sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                messages = failedMessages(messages, e);
+
+                if(attempt >= properties.getMaxAttempts()) {
+                    log.error("giving up sending {} mail messages after {} attempts", messages.length, attempt, e);
+                    failedCounter.increment(messages.length);
+                    return;
+                }
+
+                long backoff = properties.getBackoffMillis() << (attempt - 1);
+                long delay = backoff + ThreadLocalRandom.current().nextLong(backoff + 1);
+                log.warn("failed to send {} mail messages (attempt {}), retrying in {} ms: {}",
+                        messages.length, attempt, delay, e.getMessage());
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    // only the messages rejected by the server are retried
+    private SimpleMailMessage[] failedMessages(SimpleMailMessage[] messages, MailException exception) {
+        if(!(exception instanceof MailSendException)
+                || ((MailSendException) exception).getFailedMessages().isEmpty()) {
+            return messages;
+        }
+
+        Map<Object, Exception> failedMessages = ((MailSendException) exception).getFailedMessages();
+        List<SimpleMailMessage> failed = new ArrayList<>();
+        for (SimpleMailMessage message : messages) {
+            if(failedMessages.containsKey(message)) {
+                failed.add(message);
+            }
+        }
+
+        sentCounter.increment(messages.length - failed.size());
+        return failed.toArray(new SimpleMailMessage[failed.size()]);
+    }
+}
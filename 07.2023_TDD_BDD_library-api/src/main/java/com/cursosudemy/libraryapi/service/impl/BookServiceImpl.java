@@ -1,56 +1,122 @@
 package com.cursosudemy.libraryapi.service.impl;
 
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.api.dto.BookImportResultDTO;
+import com.cursosudemy.libraryapi.config.IsbnCacheEvict;
 import com.cursosudemy.libraryapi.exception.BusinessException;
 import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
 import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.service.BookAvailabilityIndex;
+import com.cursosudemy.libraryapi.service.BookSearchIndex;
 import com.cursosudemy.libraryapi.service.BookService;
+import com.cursosudemy.libraryapi.service.BookVersionIndex;
+import com.cursosudemy.libraryapi.service.ChangeEventPublisher;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.cursosudemy.libraryapi.config.CacheConfig.BOOKS_BY_ISBN;
+import static com.cursosudemy.libraryapi.config.CacheConfig.BOOKS_ISBN_EXISTS;
+import static com.cursosudemy.libraryapi.model.repository.BookSpecifications.matching;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private BookRepository repository;
 
-    public BookServiceImpl(BookRepository repository) {
+    private BookSearchIndex searchIndex;
+
+    private BookVersionIndex versionIndex;
+
+    private BookAvailabilityIndex availabilityIndex;
+
+    private ChangeEventPublisher changeEvents;
+
+    public BookServiceImpl(BookRepository repository, BookSearchIndex searchIndex, BookVersionIndex versionIndex,
+                           BookAvailabilityIndex availabilityIndex, ChangeEventPublisher changeEvents) {
         this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.versionIndex = versionIndex;
+        this.availabilityIndex = availabilityIndex;
+        this.changeEvents = changeEvents;
     }
 
+    // the writes record their change event in the same transaction (transactional outbox)
     @Override
+    @Transactional
+    @IsbnCacheEvict
     public Book save(Book book) {
 
         if(repository.existsByIsbn(book.getIsbn())) {
             throw new BusinessException("Isbn já cadastrado.");
         }
 
-        return repository.save(book);
+        Book savedBook = repository.save(book);
+        searchIndex.index(savedBook);
+        versionIndex.put(savedBook);
+        availabilityIndex.addBook(savedBook.getId());
+        changeEvents.book(OutboxEvent.Type.CREATED, savedBook);
+        return savedBook;
     }
 
     @Override
     public Optional<Book> getById(Long id) {
-        return this.repository.findById(id);
+        Optional<Book> book = this.repository.findById(id);
+        book.ifPresent(versionIndex::put);
+        return book;
+    }
+
+    @Override
+    public Optional<Long> getCachedVersion(Long id) {
+        return versionIndex.get(id);
     }
 
     @Override
+    @Transactional
+    @IsbnCacheEvict
     public void delete(Book book) {
         if(book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book can not be null");
         }
         this.repository.delete(book);
+        searchIndex.remove(book.getId());
+        versionIndex.remove(book.getId());
+        availabilityIndex.removeBook(book.getId());
+        changeEvents.book(OutboxEvent.Type.DELETED, book);
     }
 
     @Override
+    @Transactional
+    @IsbnCacheEvict
     public Book update(Book book) {
         if(book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book can not be null");
         }
 
-        return this.repository.save(book);
+        Book updatedBook = this.repository.save(book);
+        searchIndex.index(updatedBook);
+        versionIndex.put(updatedBook);
+        changeEvents.book(OutboxEvent.Type.UPDATED, updatedBook);
+        return updatedBook;
     }
 
     @Override
@@ -60,6 +126,7 @@ public class BookServiceImpl implements BookService {
                         .matching()
                         .withIgnoreCase()
                         .withIncludeNullValues()
+                        .withIgnorePaths("version")
                         .withStringMatcher( ExampleMatcher.StringMatcher.CONTAINING ) // CONTAINING indica se houver um pedaço da palavra no atrubuto pesquisado deve trzer resultado
                 );
 
@@ -67,8 +134,100 @@ public class BookServiceImpl implements BookService {
         return repository.findAll(example, pageRequest);
     }
 
+    @Override
+    public List<Book> findAfter(Book filter, Long afterId, int limit) {
+        return repository.findAfter(matching(filter), afterId, limit);
+    }
+
+    @Override
+    public List<Long> findAvailableIdsAfter(Long afterId, int limit) {
+        return availabilityIndex.findAvailableAfter(afterId, limit);
+    }
+
+    // the books are handed to the consumer while they are read, the cursor is closed at the end
+    @Override
+    @Transactional(readOnly = true)
+    public void streamDtos(Book filter, Consumer<BookDTO> consumer) {
+        try (Stream<BookDTO> books = repository.streamDtos(matching(filter))) {
+            books.forEach(consumer);
+        }
+    }
+
+    /*
+        Ranked search over title and author. The index gives the ids in rank order and only the books of the
+        requested page are read from the database.
+     */
+    @Override
+    public Page<Book> search(String text, Pageable pageRequest) {
+        List<Long> ids = searchIndex.search(text);
+
+        int from = (int) Math.min(pageRequest.getOffset(), ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + pageRequest.getPageSize(), ids.size()));
+
+        Map<Long, Book> books = repository.findAllById(pageIds)
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        List<Book> content = pageIds.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(content, pageRequest, ids.size());
+    }
+
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        // the id comes from the isbn cache, the book is read by primary key
+        return repository.findIdByIsbn(isbn).flatMap(repository::findById);
+    }
+
+    /*
+        Imports a chunk of books in one transaction: a single query checks which isbns already exist and the
+        new books are inserted in JDBC batches. Returns one result per book, in the same order.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = {BOOKS_BY_ISBN, BOOKS_ISBN_EXISTS}, allEntries = true)
+    public List<BookImportResultDTO> importBooks(List<Book> books) {
+        Set<String> isbns = books.stream()
+                .map(Book::getIsbn)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Set<String> takenIsbns = isbns.isEmpty() ? new HashSet<>() : new HashSet<>(repository.findIsbnsIn(isbns));
+
+        List<BookImportResultDTO> results = new ArrayList<>(books.size());
+        List<BookImportResultDTO> createdResults = new ArrayList<>();
+        List<Book> newBooks = new ArrayList<>();
+
+        for (Book book : books) {
+            BookImportResultDTO result = BookImportResultDTO.builder().isbn(book.getIsbn()).build();
+
+            if(!StringUtils.hasText(book.getTitle()) || !StringUtils.hasText(book.getAuthor())
+                    || !StringUtils.hasText(book.getIsbn())) {
+                result.setStatus(BookImportResultDTO.Status.INVALID);
+                result.setError("Title, author and isbn are required.");
+            } else if(!takenIsbns.add(book.getIsbn())) {
+                result.setStatus(BookImportResultDTO.Status.DUPLICATED);
+                result.setError("Isbn já cadastrado.");
+            } else {
+                result.setStatus(BookImportResultDTO.Status.CREATED);
+                newBooks.add(book);
+                createdResults.add(result);
+            }
+
+            results.add(result);
+        }
+
+        List<Book> savedBooks = repository.saveAll(newBooks);
+        for (int i = 0; i < savedBooks.size(); i++) {
+            createdResults.get(i).setId(savedBooks.get(i).getId());
+            searchIndex.index(savedBooks.get(i));
+            availabilityIndex.addBook(savedBooks.get(i).getId());
+            changeEvents.book(OutboxEvent.Type.CREATED, savedBooks.get(i));
+        }
+
+        return results;
     }
 }
@@ -3,6 +3,7 @@ package com.cursosudemy.libraryapi.service.impl;
 import com.cursosudemy.libraryapi.service.EmailService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
@@ -11,6 +12,7 @@ import java.util.List;
 
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.mail.dispatcher.mode", havingValue = "sync")
 public class EmailServiceImpl implements EmailService {
 
     @Value("${application.mail.default-remetent}")
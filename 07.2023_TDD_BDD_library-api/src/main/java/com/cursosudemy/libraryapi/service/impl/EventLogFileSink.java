@@ -0,0 +1,46 @@
+package com.cursosudemy.libraryapi.service.impl;
+
+import com.cursosudemy.libraryapi.api.dto.ChangeEventDTO;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.service.ChangeEventSink;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// appends the events to a file, one JSON per line (NDJSON), that the consumers can tail
+@Component
+@ConditionalOnProperty(name = "application.events.log-file.enabled", havingValue = "true")
+public class EventLogFileSink implements ChangeEventSink {
+
+    private final Path path;
+    private final ObjectWriter writer = Jackson2ObjectMapperBuilder.json().build().writerFor(ChangeEventDTO.class);
+
+    public EventLogFileSink(@Value("${application.events.log-file.path:events.ndjson}") String path) {
+        this.path = Paths.get(path);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (OutboxEvent event : events) {
+                out.write(writer.writeValueAsString(ChangeEventDTO.of(event)));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the change events to " + path, e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.cursosudemy.libraryapi.service.impl;
+
+import com.cursosudemy.libraryapi.api.dto.ChangeEventBatchDTO;
+import com.cursosudemy.libraryapi.api.dto.ChangeEventDTO;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.model.entity.PublishedEvent;
+import com.cursosudemy.libraryapi.model.repository.PublishedEventRepository;
+import com.cursosudemy.libraryapi.service.ChangeEventSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+    Local stand-in of a Kafka topic: the relayed events are kept in the published_event table and read by the
+    consumers from the offset they have reached (GET /api/events). The offsets are kept with the events, so
+    every instance serves the same topic and the offsets survive restarts.
+
+    Only the last retention events are kept. A consumer behind the first offset kept has lost the events in
+    between, and one ahead of the last offset holds an offset of another topic (a database created again);
+    both cases are refused by ChangeEventController instead of being skipped, the consumer has to read again
+    from the first offset.
+
+    The offsets are given when the events are relayed, not when they are saved in the outbox: the outbox ids
+    are taken when the changes are written and become visible when their transactions commit, out of order.
+    An event committed late is relayed later and takes an offset after the ones already read, never below.
+ */
+@Component
+@ConditionalOnProperty(name = "application.events.topic.enabled", havingValue = "true", matchIfMissing = true)
+public class EventTopicSink implements ChangeEventSink {
+
+    private final PublishedEventRepository repository;
+    private final int retention;
+
+    public EventTopicSink(PublishedEventRepository repository,
+                          @Value("${application.events.topic.retention:10000}") int retention) {
+        this.repository = repository;
+        this.retention = retention;
+    }
+
+    @Override
+    @Transactional
+    public void publish(List<OutboxEvent> events) {
+        repository.insertFromOutbox(events.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+
+        // the newest offset past the retention, it and the older ones are removed
+        repository.findOffsetsNewestFirst(PageRequest.of(retention, 1))
+                .stream()
+                .findFirst()
+                .ifPresent(repository::deleteUntil);
+    }
+
+    @Transactional(readOnly = true)
+    public ChangeEventBatchDTO read(long offset, int maxEvents) {
+        List<ChangeEventDTO> events = repository.findByOffsetGreaterThanEqualOrderByOffsetAsc(offset, PageRequest.of(0, maxEvents))
+                .stream()
+                .map(EventTopicSink::toDto)
+                .collect(Collectors.toList());
+
+        long next = events.isEmpty() ? offset : events.get(events.size() - 1).getOffset() + 1;
+        return new ChangeEventBatchDTO(events, next);
+    }
+
+    // offset of the oldest event kept, the end offset when the topic is empty
+    public long firstOffset() {
+        return repository.findFirstOffset().orElseGet(this::endOffset);
+    }
+
+    // offset of the next event to be published
+    public long endOffset() {
+        return repository.findLastOffset().map(offset -> offset + 1).orElse(0L);
+    }
+
+    private static ChangeEventDTO toDto(PublishedEvent event) {
+        return ChangeEventDTO.builder()
+                .offset(event.getOffset())
+                .id(event.getEventId())
+                .aggregateType(event.getAggregateType())
+                .aggregateId(event.getAggregateId())
+                .type(event.getType())
+                .createdAt(event.getCreatedAt())
+                .payload(event.getPayload())
+                .build();
+    }
+}
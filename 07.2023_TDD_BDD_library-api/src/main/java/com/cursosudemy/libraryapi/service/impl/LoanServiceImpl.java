@@ -1,37 +1,133 @@
 package com.cursosudemy.libraryapi.service.impl;
 
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.api.dto.LoanFilterDTO;
 import com.cursosudemy.libraryapi.exception.BusinessException;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.model.repository.LoanArchiveRepository;
 import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import com.cursosudemy.libraryapi.service.BookAvailabilityIndex;
+import com.cursosudemy.libraryapi.service.ChangeEventPublisher;
 import com.cursosudemy.libraryapi.service.LoanService;
+import com.cursosudemy.libraryapi.service.OverdueLoanTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
-import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.cursosudemy.libraryapi.model.repository.LoanSpecifications.byIsbnOrCustomer;
 
 @Service
 public class LoanServiceImpl implements LoanService {
 
+    // unique index of the open loans by book (see import.sql)
+    private static final String OPEN_LOAN_CONSTRAINT = "UK_LOAN_OPEN_BOOK";
+
     private LoanRepository repository;
 
-    public LoanServiceImpl(LoanRepository repository) {
+    private LoanArchiveRepository archiveRepository;
+
+    private OverdueLoanTracker overdueLoanTracker;
+
+    private BookAvailabilityIndex availabilityIndex;
+
+    private ChangeEventPublisher changeEvents;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Lock[] bookLocks;
+
+    public LoanServiceImpl(LoanRepository repository,
+                           LoanArchiveRepository archiveRepository,
+                           OverdueLoanTracker overdueLoanTracker,
+                           BookAvailabilityIndex availabilityIndex,
+                           ChangeEventPublisher changeEvents,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${application.loans.lock-stripes:0}") int lockStripes) {
 
         this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.overdueLoanTracker = overdueLoanTracker;
+        this.availabilityIndex = availabilityIndex;
+        this.changeEvents = changeEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookLocks = new Lock[Math.max(lockStripes, 0)];
+        for (int i = 0; i < bookLocks.length; i++) {
+            bookLocks[i] = new ReentrantLock();
+        }
     }
 
+    /*
+        The database allows a single open loan per book, so the loan is created with a single insert and a
+        second loan of the same book fails on the unique index instead of being checked before.
+        With application.loans.lock-stripes (embedded profile) the loans of the same book are also serialized
+        by an in-process lock (striped by book id), so concurrent requests wait for each other instead of all
+        of them racing to the database.
+        A book already loaned according to BookAvailabilityIndex (confirmed in the database) is refused
+        before any of that.
+        The loan and its change event are committed before the lock is released.
+     */
     @Override
     public Loan save(Loan loan) {
-
-        if(repository.existsByBookAndNotReturned(loan.getBook())) {
+        Long bookId = loan.getBook().getId();
+        if(bookId != null && availabilityIndex.isLoaned(loan.getBook())) {
             throw new BusinessException("Book already loaned");
         }
 
-        return repository.save(loan);
+        Lock lock = bookLock(bookId);
+        if(lock != null) {
+            lock.lock();
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                Loan saved = repository.save(loan);
+                overdueLoanTracker.added(saved);
+                availabilityIndex.update(saved);
+                changeEvents.loan(OutboxEvent.Type.CREATED, saved);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if(isOpenLoanViolation(e)) {
+                // the index missed the open loan (saved by another instance or before it was loaded)
+                availabilityIndex.update(loan);
+                throw new BusinessException("Book already loaned");
+            }
+            throw e;
+        } finally {
+            if(lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Lock bookLock(Long bookId) {
+        if(bookLocks.length == 0 || bookId == null) {
+            return null;
+        }
+        return bookLocks[Math.floorMod(bookId.hashCode(), bookLocks.length)];
+    }
+
+    private boolean isOpenLoanViolation(DataIntegrityViolationException exception) {
+        String message = exception.getMostSpecificCause().getMessage();
+        return message != null && message.toUpperCase().contains(OPEN_LOAN_CONSTRAINT);
     }
 
     @Override
@@ -40,13 +136,19 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        Loan updated = repository.save(loan);
+        overdueLoanTracker.updated(updated);
+        availabilityIndex.update(updated);
+        changeEvents.loan(Boolean.TRUE.equals(updated.getReturned())
+                ? OutboxEvent.Type.RETURNED : OutboxEvent.Type.UPDATED, updated);
+        return updated;
     }
 
     @Override
     public Page<Loan> find(LoanFilterDTO loanFilterDTO, Pageable pageable) {
-        return repository.findByBookIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer(), pageable);
+        return repository.findAll(byIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer()), pageable);
     }
 
     @Override
@@ -54,10 +156,75 @@ public class LoanServiceImpl implements LoanService {
         return repository.findByBook(book, pageable);
     }
 
+    @Override
+    public Page<LoanDto> findDtos(LoanFilterDTO loanFilterDTO, Pageable pageable) {
+        return repository.findDtos(byIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer()), pageable);
+    }
+
+    /*
+        The loans still in the Loan table and the ones archived by LoanArchiver, ordered by id. The union is a
+        native query, so the sort of the pageable is not applied.
+     */
+    @Override
+    public Page<LoanDto> findDtosWithHistory(LoanFilterDTO loanFilterDTO, Pageable pageable) {
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        String isbn = StringUtils.hasText(loanFilterDTO.getIsbn()) ? loanFilterDTO.getIsbn() : null;
+        String customer = StringUtils.hasText(loanFilterDTO.getCustomer()) ? loanFilterDTO.getCustomer() : null;
+        Page<Object[]> rows = archiveRepository.findHistoryByBookIsbnOrCustomer(isbn, customer, unsorted);
+
+        List<LoanDto> content = rows.getContent()
+                .stream()
+                .map(row -> new LoanDto(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        (String) row[2],
+                        ((Number) row[3]).longValue(),
+                        (String) row[4],
+                        (String) row[5],
+                        (String) row[6]))
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(content, pageable, rows.getTotalElements());
+    }
+
+    @Override
+    public Page<LoanDto> getLoanDtosByBook(Long bookId, Pageable pageable) {
+        return repository.findDtoByBookId(bookId, pageable);
+    }
+
+    @Override
+    public List<LoanDto> findDtosAfter(LoanFilterDTO loanFilterDTO, Long afterId, int limit) {
+        return repository.findDtosAfter(byIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer()),
+                afterId, limit);
+    }
+
+    // the loans are handed to the consumer while they are read, the cursor is closed at the end
+    @Override
+    @Transactional(readOnly = true)
+    public void streamDtos(LoanFilterDTO loanFilterDTO, Consumer<LoanDto> consumer) {
+        try (Stream<LoanDto> loans = repository.streamDtos(
+                byIsbnOrCustomer(loanFilterDTO.getIsbn(), loanFilterDTO.getCustomer()))) {
+            loans.forEach(consumer);
+        }
+    }
+
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        return repository.findOverdue();
+    }
+
+    @Override
+    public Optional<Long> getFirstLateLoanId() {
+        return Optional.ofNullable(repository.findFirstLateLoanId());
+    }
+
+    @Override
+    public Optional<Long> getLastLateLoanId() {
+        return Optional.ofNullable(repository.findLastLateLoanId());
+    }
+
+    @Override
+    public List<LoanDto> findLateLoansBetween(Long afterId, Long lastId, int limit) {
+        return repository.findLateLoansBetween(afterId, lastId, PageRequest.of(0, limit));
     }
 }
@@ -0,0 +1,5 @@
+-- Run by Hibernate after it creates the schema (ddl-auto create / create-drop).
+-- open_book_id keeps the book id while the loan is not returned and is null afterwards, so the unique index
+-- allows a single open loan per book (the same as a partial unique index "on loan(id_book) where not returned").
+alter table loan add column open_book_id bigint as (case when returned then null else id_book end);
+create unique index uk_loan_open_book on loan(open_book_id);
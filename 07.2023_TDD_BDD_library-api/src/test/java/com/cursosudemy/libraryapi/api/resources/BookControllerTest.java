@@ -1,6 +1,9 @@
 package com.cursosudemy.libraryapi.api.resources;
 
 import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.api.dto.BookImportResultDTO;
+import com.cursosudemy.libraryapi.api.dto.KeysetPageDTO;
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.exception.BusinessException;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.service.BookService;
@@ -11,6 +14,7 @@ import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,16 +24,22 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 // create a mini context of dependencies injections to run the tests
 @ExtendWith(SpringExtension.class)
@@ -161,6 +171,47 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar o ETag com a versão do livro")
+    public void getBookDetailsETagTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").version(2L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"2\""));
+    }
+
+    @Test
+    @DisplayName("Deve retornar not modified pela versão conhecida sem obter o livro")
+    public void getBookDetailsNotModifiedTest() throws Exception {
+        BDDMockito.given(service.getCachedVersion(1L)).willReturn(Optional.of(2L));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve retornar o livro quando a versão do cliente estiver desatualizada")
+    public void getBookDetailsModifiedTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").version(3L).build();
+        BDDMockito.given(service.getCachedVersion(1L)).willReturn(Optional.of(3L));
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("title").value("As aventuras"));
+    }
+
     @Test
     @DisplayName("Deve retornar resource not found quando o livro procurado não existir")
     public void bookNotFoundTest() throws Exception{
@@ -301,6 +352,188 @@ public class BookControllerTest {
     }
 
 
+    @Test
+    @DisplayName("Deve pesquisar livros por título ou autor")
+    public void searchBookTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build();
+
+        BDDMockito.given(service.search(Mockito.eq("aventura"), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 20), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/search?q=aventura"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].title").value("As aventuras"))
+                .andExpect(MockMvcResultMatchers.jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros com paginação por chave")
+    public void findBookKeysetTest() throws Exception {
+        List<Book> books = Arrays.asList(
+                Book.builder().id(11L).title("As aventuras").author("Artur").isbn("001").build(),
+                Book.builder().id(12L).title("As aventuras 2").author("Artur").isbn("002").build(),
+                Book.builder().id(13L).title("As aventuras 3").author("Artur").isbn("003").build());
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.eq(10L), Mockito.eq(3)))
+                .willReturn(books);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?keyset&size=2&after=" + KeysetPageDTO.encodeToken(10L)))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[1].id").value(12))
+                .andExpect(MockMvcResultMatchers.jsonPath("next").value(KeysetPageDTO.encodeToken(12L)))
+                .andExpect(MockMvcResultMatchers.jsonPath("totalElements").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Deve listar os ids dos livros disponíveis com paginação por chave")
+    public void findAvailableTest() throws Exception {
+        BDDMockito.given(service.findAvailableIdsAfter(0L, 3)).willReturn(Arrays.asList(1L, 4L, 5L));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/available?size=2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.contains(1, 4)))
+                .andExpect(MockMvcResultMatchers.jsonPath("next").value(KeysetPageDTO.encodeToken(4L)));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao paginar livros com token inválido")
+    public void findBookInvalidKeysetTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?keyset&after=!!"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("errors[0]").value("Invalid continuation token"));
+    }
+
+    @Test
+    @DisplayName("Deve obter os empréstimos de um livro")
+    public void loansByBookTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build();
+        LoanDto loanDto = new LoanDto(2L, "Fulano", "fulano@email.com", 1L, "001", "As aventuras", "Artur");
+
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+        BDDMockito.given(loanService.getLoanDtosByBook(Mockito.eq(1L), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<LoanDto>(Arrays.asList(loanDto), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/1/loans?page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].customer").value("Fulano"))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].bookDTO.title").value("As aventuras"));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros em lote a partir de NDJSON")
+    public void bulkCreateNdjsonTest() throws Exception {
+        BDDMockito.given(service.importBooks(Mockito.anyList()))
+                .willReturn(Arrays.asList(
+                        BookImportResultDTO.builder().isbn("001").id(10L).status(BookImportResultDTO.Status.CREATED).build(),
+                        BookImportResultDTO.builder().isbn("002").status(BookImportResultDTO.Status.DUPLICATED).build()));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String ndjson = objectMapper.writeValueAsString(createNewBook()) + "\n"
+                + objectMapper.writeValueAsString(BookDTO.builder().author("Artur").title("Outro").isbn("002").build());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/bulk"))
+                .contentType("application/x-ndjson")
+                .content(ndjson);
+
+        String response = mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], BookImportResultDTO.class).getIndex()).isEqualTo(0);
+        assertThat(objectMapper.readValue(lines[0], BookImportResultDTO.class).getId()).isEqualTo(10L);
+        assertThat(objectMapper.readValue(lines[1], BookImportResultDTO.class).getIndex()).isEqualTo(1);
+        assertThat(objectMapper.readValue(lines[1], BookImportResultDTO.class).getStatus())
+                .isEqualTo(BookImportResultDTO.Status.DUPLICATED);
+    }
+
+    @Test
+    @DisplayName("Deve importar livros em lote a partir de um array JSON e reportar a linha malformada")
+    public void bulkCreateArrayTest() throws Exception {
+        BDDMockito.given(service.importBooks(Mockito.anyList()))
+                .willReturn(Arrays.asList(
+                        BookImportResultDTO.builder().isbn("001").id(10L).status(BookImportResultDTO.Status.CREATED).build()));
+
+        String json = "[" + new ObjectMapper().writeValueAsString(createNewBook()) + ", {\"title\": ]";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/bulk"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        String response = mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(2);
+        BookImportResultDTO malformed = new ObjectMapper().readValue(lines[1], BookImportResultDTO.class);
+        assertThat(malformed.getIndex()).isEqualTo(1);
+        assertThat(malformed.getStatus()).isEqualTo(BookImportResultDTO.Status.INVALID);
+        Mockito.verify(service, Mockito.times(1)).importBooks(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros filtrados como NDJSON")
+    @SuppressWarnings("unchecked")
+    public void streamBooksTest() throws Exception {
+        //cenario
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<BookDTO> consumer = invocation.getArgument(1);
+            consumer.accept(BookDTO.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build());
+            consumer.accept(BookDTO.builder().id(2L).title("As aventuras 2").author("Artur").isbn("002").build());
+            return null;
+        }).given(service).streamDtos(Mockito.any(Book.class), Mockito.any(Consumer.class));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=Artur"))
+                .accept("application/x-ndjson");
+
+        //ação
+        MvcResult result = mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //verificação
+        String response = mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(new ObjectMapper().readValue(lines[1], BookDTO.class).getIsbn()).isEqualTo("002");
+
+        ArgumentCaptor<Book> filter = ArgumentCaptor.forClass(Book.class);
+        Mockito.verify(service).streamDtos(filter.capture(), Mockito.any(Consumer.class));
+        assertThat(filter.getValue().getAuthor()).isEqualTo("Artur");
+    }
+
     private BookDTO createNewBook(){
         return BookDTO.builder().author("Artur").title("As aventuras").isbn("001").build();
     }
@@ -0,0 +1,79 @@
+package com.cursosudemy.libraryapi.api.resources;
+
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.model.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the whole application against the embedded database, the version index is only updated by real commits
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BookETagTest {
+
+    static final String BOOK_API = "/api/books";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    OutboxEventRepository outboxRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @AfterEach
+    public void tearDown() {
+        bookRepository.deleteAll();
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Não deve responder 304 para o ETag anterior à atualização do livro")
+    public void updateThenGetWithOldETagTest() throws Exception {
+        //cenario
+        Book book = bookRepository.save(Book.builder().isbn("123").author("Fulano").title("As aventuras").build());
+        String oldETag = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + book.getId())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        byte[] json = objectMapper.writeValueAsBytes(BookDTO.builder().title("Outro título").author("Ciclano").build());
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/" + book.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk());
+
+        //ação / verificação
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + book.getId()))
+                .header(HttpHeaders.IF_NONE_MATCH, oldETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + (book.getVersion() + 1) + "\""))
+                .andExpect(jsonPath("title").value("Outro título"));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/" + book.getId()))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + (book.getVersion() + 1) + "\""))
+                .andExpect(status().isNotModified());
+    }
+}
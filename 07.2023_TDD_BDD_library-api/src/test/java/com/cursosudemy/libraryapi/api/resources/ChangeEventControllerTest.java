@@ -0,0 +1,96 @@
+package com.cursosudemy.libraryapi.api.resources;
+
+import com.cursosudemy.libraryapi.api.dto.ChangeEventBatchDTO;
+import com.cursosudemy.libraryapi.api.dto.ChangeEventDTO;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.service.impl.EventTopicSink;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(ChangeEventController.class)
+@AutoConfigureMockMvc
+public class ChangeEventControllerTest {
+
+    static final String EVENTS_API = "/api/events";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    EventTopicSink topic;
+
+    @Test
+    @DisplayName("Deve ler os eventos de alteração a partir do offset informado")
+    public void readEventsTest() throws Exception {
+        //cenario
+        ChangeEventDTO event = ChangeEventDTO.builder().offset(5L).id(10L).aggregateType("loan").aggregateId(3L)
+                .type(OutboxEvent.Type.RETURNED).payload("{\"id\":3,\"returned\":true}").build();
+        BDDMockito.given(topic.firstOffset()).willReturn(1L);
+        BDDMockito.given(topic.endOffset()).willReturn(6L);
+        BDDMockito.given(topic.read(5L, 50)).willReturn(new ChangeEventBatchDTO(Arrays.asList(event), 6L));
+
+        //ação / verificação
+        mvc.perform(MockMvcRequestBuilders.get(EVENTS_API.concat("?offset=5&size=50")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("events[0].type").value("RETURNED"))
+                .andExpect(jsonPath("events[0].payload.returned").value(true))
+                .andExpect(jsonPath("nextOffset").value(6));
+    }
+
+    @Test
+    @DisplayName("Deve recusar um offset de eventos já removidos do tópico")
+    public void readRemovedEventsTest() throws Exception {
+        //cenario
+        BDDMockito.given(topic.firstOffset()).willReturn(100L);
+        BDDMockito.given(topic.endOffset()).willReturn(200L);
+
+        //ação / verificação
+        mvc.perform(MockMvcRequestBuilders.get(EVENTS_API.concat("?offset=5")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isGone());
+        BDDMockito.verify(topic, Mockito.never()).read(Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    @Test
+    @DisplayName("Deve recusar um offset além do fim do tópico")
+    public void readPastTheEndTest() throws Exception {
+        //cenario
+        BDDMockito.given(topic.firstOffset()).willReturn(0L);
+        BDDMockito.given(topic.endOffset()).willReturn(3L);
+
+        //ação / verificação
+        mvc.perform(MockMvcRequestBuilders.get(EVENTS_API.concat("?offset=500")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("Deve ler desde o primeiro evento mantido a partir do offset 0")
+    public void readFromTheBeginningTest() throws Exception {
+        //cenario
+        BDDMockito.given(topic.firstOffset()).willReturn(100L);
+        BDDMockito.given(topic.endOffset()).willReturn(200L);
+        BDDMockito.given(topic.read(0L, 100)).willReturn(new ChangeEventBatchDTO(Arrays.asList(), 0L));
+
+        //ação / verificação
+        mvc.perform(MockMvcRequestBuilders.get(EVENTS_API).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,102 @@
+package com.cursosudemy.libraryapi.api.resources;
+
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the whole application against the embedded database, the requests really compete for the same book
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class LoanConcurrencyTest {
+
+    static final String LOAN_API = "/api/loans";
+
+    static final int REQUESTS = 2000;
+    static final int THREADS = 32;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve criar um único empréstimo quando muitas requisições disputam o mesmo livro")
+    public void concurrentLoansTest() throws Exception {
+        //cenario
+        Book book = bookRepository.save(Book.builder().isbn("123").author("Fulano").title("As aventuras").build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        //ação
+        for (int i = 0; i < REQUESTS; i++) {
+            byte[] json = objectMapper.writeValueAsBytes(LoanDto.builder().isbn("123").customer("Fulano " + i).build());
+
+            futures.add(executor.submit(() -> {
+                start.await();
+                int status = mvc.perform(MockMvcRequestBuilders.post(LOAN_API)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                        .andReturn().getResponse().getStatus();
+                statuses.computeIfAbsent(status, key -> new AtomicInteger()).incrementAndGet();
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //verificação
+        assertThat(statuses.get(201).get()).isEqualTo(1);
+        assertThat(statuses.get(400).get()).isEqualTo(REQUESTS - 1);
+        assertThat(statuses).hasSize(2);
+        assertThat(loanRepository.count()).isEqualTo(1);
+        assertThat(loanRepository.existsByBookAndNotReturned(book)).isTrue();
+    }
+}
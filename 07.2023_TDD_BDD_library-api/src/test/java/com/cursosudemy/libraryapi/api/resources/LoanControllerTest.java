@@ -1,5 +1,6 @@
 package com.cursosudemy.libraryapi.api.resources;
 
+import com.cursosudemy.libraryapi.api.dto.KeysetPageDTO;
 import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.api.dto.LoanFilterDTO;
 import com.cursosudemy.libraryapi.api.dto.ReturnedLoanDTO;
@@ -10,6 +11,7 @@ import com.cursosudemy.libraryapi.service.BookService;
 import com.cursosudemy.libraryapi.service.EmailService;
 import com.cursosudemy.libraryapi.service.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -28,6 +30,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -36,6 +39,7 @@ import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.function.Consumer;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -168,6 +172,7 @@ public class LoanControllerTest {
 
         //verificação
         Mockito.verify(loanService, Mockito.times(1)).update(loan);
+        Assertions.assertThat(loan.getReturnDate()).isEqualTo(LocalDate.now());
     }
 
     @Test
@@ -206,8 +211,11 @@ public class LoanControllerTest {
         Book book = Book.builder().id(1L).isbn("321").build();
         loan.setBook(book);
 
-        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
-                .willReturn( new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+        LoanDto loanDto = new LoanDto(id, loan.getCustomer(), "customer@email.com",
+                book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor());
+
+        BDDMockito.given(loanService.findDtos(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn( new PageImpl<LoanDto>(Arrays.asList(loanDto), PageRequest.of(0, 10), 1));
 
         String queryString = String.format("?isbn=%s&customer=%s&page=0&size=10",
                 book.getIsbn(),
@@ -223,7 +231,84 @@ public class LoanControllerTest {
                 .andExpect( MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(1)) )
                 .andExpect( MockMvcResultMatchers.jsonPath("totalElements").value(1) )
                 .andExpect(MockMvcResultMatchers.jsonPath("pageable.pageSize").value(10))
-                .andExpect( MockMvcResultMatchers.jsonPath("pageable.pageNumber").value(0));
+                .andExpect( MockMvcResultMatchers.jsonPath("pageable.pageNumber").value(0))
+                .andExpect( MockMvcResultMatchers.jsonPath("content[0].bookDTO.isbn").value("321"));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar emprestimos incluindo os arquivados")
+    public void findLoanWithHistoryTest() throws Exception {
+        //cenario
+        LoanDto loanDto = new LoanDto(1L, "Fulano", "fulano@email.com", 1L, "321", "As aventuras", "Artur");
+
+        BDDMockito.given(loanService.findDtosWithHistory(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<LoanDto>(Arrays.asList(loanDto), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?customer=Fulano&history=true&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        //ação / verificação
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].id").value(1));
+
+        Mockito.verify(loanService, Mockito.never()).findDtos(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os emprestimos filtrados como NDJSON")
+    @SuppressWarnings("unchecked")
+    public void streamLoansTest() throws Exception {
+        //cenario
+        LoanDto loanDto = new LoanDto(1L, "Fulano", "fulano@email.com", 1L, "321", "As aventuras", "Artur");
+
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<LoanDto> consumer = invocation.getArgument(1);
+            consumer.accept(loanDto);
+            return null;
+        }).given(loanService).streamDtos(Mockito.any(LoanFilterDTO.class), Mockito.any(Consumer.class));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?customer=Fulano"))
+                .accept("application/x-ndjson");
+
+        //ação
+        MvcResult result = mvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //verificação
+        String response = mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertThat(response).isEqualTo(new ObjectMapper().writeValueAsString(loanDto) + "\n");
+        Mockito.verify(loanService, Mockito.never()).findDtos(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar emprestimos com paginação por chave")
+    public void findLoanKeysetTest() throws Exception {
+        //cenario
+        LoanDto loanDto = new LoanDto(5L, "Fulano", "fulano@email.com", 1L, "321", "As aventuras", "Artur");
+
+        BDDMockito.given(loanService.findDtosAfter(Mockito.any(LoanFilterDTO.class), Mockito.eq(0L), Mockito.eq(11)))
+                .willReturn(Arrays.asList(loanDto));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?keyset&customer=Fulano&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        //verificação
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("size").value(10))
+                .andExpect(jsonPath("next").doesNotExist());
     }
 
     public Loan createLoan() {
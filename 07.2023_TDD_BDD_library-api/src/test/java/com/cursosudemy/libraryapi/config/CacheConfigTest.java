@@ -0,0 +1,139 @@
+package com.cursosudemy.libraryapi.config;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.service.BookAvailabilityIndex;
+import com.cursosudemy.libraryapi.service.BookSearchIndex;
+import com.cursosudemy.libraryapi.service.ChangeEventPublisher;
+import com.cursosudemy.libraryapi.service.BookService;
+import com.cursosudemy.libraryapi.service.BookVersionIndex;
+import com.cursosudemy.libraryapi.service.EmailService;
+import com.cursosudemy.libraryapi.service.impl.BookServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// create a mini context of dependencies injection with the JPA repositories, the caches and the book service
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({CacheConfig.class, BookServiceImpl.class, BookSearchIndex.class, BookVersionIndex.class,
+        BookAvailabilityIndex.class, ChangeEventPublisher.class})
+public class CacheConfigTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    EmailService emailService;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("Deve obter o id do livro do cache na segunda busca pelo isbn")
+    public void findIdByIsbnCachedTest() {
+        // cenario
+        Book book = entityManager.persist(createNewBook("123"));
+        repository.findIdByIsbn("123");
+
+        // removes the row behind the cache's back
+        entityManager.remove(book);
+        entityManager.flush();
+
+        // acao / verificacao
+        assertThat(repository.findIdByIsbn("123")).isPresent();
+        assertThat(repository.existsByIsbn("123")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve guardar no cache somente o id e ler o livro atual a cada busca pelo isbn")
+    public void getBookByIsbnNotSharedTest() {
+        // cenario
+        Book book = entityManager.persist(createNewBook("123"));
+        Book cached = service.getBookByIsbn("123").get();
+
+        // another session changes the book after its id was cached
+        entityManager.getEntityManager().createQuery("update Book b set b.title = 'Outro título' where b.id = :id")
+                .setParameter("id", book.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        // acao
+        Book found = service.getBookByIsbn("123").get();
+
+        // verificacao
+        assertThat(cacheManager.getCache(CacheConfig.BOOKS_BY_ISBN).get("123").get()).isEqualTo(book.getId());
+        assertThat(found).isNotSameAs(cached);
+        assertThat(found.getTitle()).isEqualTo("Outro título");
+    }
+
+    @Test
+    @DisplayName("Deve guardar no cache os isbns inexistentes")
+    public void negativeCacheTest() {
+        // acao
+        assertThat(repository.findIdByIsbn("999")).isNotPresent();
+        assertThat(repository.existsByIsbn("999")).isFalse();
+
+        // verificacao
+        Cache.ValueWrapper book = cacheManager.getCache(CacheConfig.BOOKS_BY_ISBN).get("999");
+        assertThat(book).isNotNull();
+        assertThat(book.get()).isNull();
+        assertThat(cacheManager.getCache(CacheConfig.BOOKS_ISBN_EXISTS).get("999").get()).isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache do isbn ao salvar um livro")
+    public void evictOnSaveTest() {
+        // cenario
+        assertThat(repository.findIdByIsbn("123")).isNotPresent();
+
+        // acao
+        service.save(createNewBook("123"));
+
+        // verificacao
+        assertThat(repository.findIdByIsbn("123")).isPresent();
+        assertThat(repository.existsByIsbn("123")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache do isbn ao excluir um livro")
+    public void evictOnDeleteTest() {
+        // cenario
+        Book book = entityManager.persist(createNewBook("123"));
+        assertThat(repository.findIdByIsbn("123")).isPresent();
+
+        // acao
+        service.delete(book);
+
+        // verificacao
+        assertThat(repository.findIdByIsbn("123")).isNotPresent();
+    }
+
+    private Book createNewBook(String isbn) {
+        return Book.builder().title("As aventuras").author("Fulano").isbn(isbn).build();
+    }
+}
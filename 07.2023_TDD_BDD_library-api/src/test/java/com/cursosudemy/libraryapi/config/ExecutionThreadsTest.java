@@ -0,0 +1,58 @@
+package com.cursosudemy.libraryapi.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ExecutionThreadsTest {
+
+    @Test
+    @DisplayName("Deve criar threads de plataforma daemon com o prefixo do nome")
+    public void platformThreadsTest() {
+        // cenario
+        ExecutionThreads executionThreads = new ExecutionThreads(ExecutionThreads.PLATFORM);
+
+        // ação
+        ThreadFactory factory = executionThreads.threadFactory("mail-dispatcher-");
+        Thread first = factory.newThread(() -> { });
+        Thread second = factory.newThread(() -> { });
+
+        // verificação
+        assertThat(executionThreads.isVirtual()).isFalse();
+        assertThat(first.isDaemon()).isTrue();
+        assertThat(first.getName()).isEqualTo("mail-dispatcher-1");
+        assertThat(second.getName()).isEqualTo("mail-dispatcher-2");
+    }
+
+    @Test
+    @DisplayName("Deve usar threads virtuais apenas quando a JVM as suporta")
+    public void virtualThreadsTest() throws Exception {
+        // ação
+        Throwable exception = catchThrowable(() -> new ExecutionThreads(ExecutionThreads.VIRTUAL));
+
+        // verificação
+        if(!ExecutionThreads.virtualThreadsSupported()) {
+            assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessageContaining("Java 21");
+            return;
+        }
+
+        assertThat(exception).isNull();
+        Thread thread = new ExecutionThreads(ExecutionThreads.VIRTUAL).threadFactory("http-").newThread(() -> { });
+        assertThat(Thread.class.getMethod("isVirtual").invoke(thread)).isEqualTo(true);
+        assertThat(thread.getName()).isEqualTo("http-1");
+    }
+
+    @Test
+    @DisplayName("Deve recusar um modo desconhecido")
+    public void unknownModeTest() {
+        // ação
+        Throwable exception = catchThrowable(() -> new ExecutionThreads("pooled"));
+
+        // verificação
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,103 @@
+package com.cursosudemy.libraryapi.config;
+
+import com.cursosudemy.libraryapi.exception.BusinessException;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.service.BookService;
+import com.cursosudemy.libraryapi.service.EmailService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+// every statement is slower than a zero threshold, so all of them are counted
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({MetricsConfig.class, SlowQueryInspector.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = "application.jpa.slow-query-threshold-ms=0")
+public class MetricsConfigTest {
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @MockBean
+    EmailService emailService;
+
+    @Test
+    @DisplayName("Deve contar os comandos SQL acima do limite")
+    public void slowStatementsTest() {
+        // cenario
+        double before = registry.get(SlowQueryInspector.SLOW_STATEMENTS_COUNTER).counter().count();
+
+        // ação
+        repository.findIdByIsbn("123");
+
+        // verificação
+        assertThat(registry.get(SlowQueryInspector.SLOW_STATEMENTS_COUNTER).counter().count())
+                .isEqualTo(before + 1);
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    @DisplayName("Deve registrar no log o SQL do comando lento")
+    public void slowStatementSqlTest(CapturedOutput output) {
+        // cenario
+        // another inspector, e.g. of a second data source, does not take the statements of this one
+        new SlowQueryInspector(new SimpleMeterRegistry(), 60_000);
+
+        // ação
+        repository.findIdByIsbn("123");
+        repository.existsByIsbn("456");
+
+        // verificação
+        assertThat(output.getOut())
+                .containsPattern("slow statement \\(\\d+ ms\\): select .+ from book .+ where .+isbn=\\?")
+                .doesNotContain("): null");
+    }
+
+    @Test
+    @DisplayName("Deve medir os métodos dos serviços por método e exceção")
+    public void serviceTimerTest() {
+        // cenario
+        SimpleMeterRegistry serviceRegistry = new SimpleMeterRegistry();
+        BookService target = Mockito.mock(BookService.class);
+        Mockito.when(target.getById(1L)).thenReturn(Optional.of(Book.builder().id(1L).build()));
+        Mockito.when(target.save(Mockito.any(Book.class))).thenThrow(new BusinessException("Isbn já cadastrado"));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new ServiceMetricsAspect(serviceRegistry));
+        BookService service = factory.getProxy();
+
+        // ação
+        service.getById(1L);
+        Throwable exception = catchThrowable(() -> service.save(new Book()));
+
+        // verificação
+        assertThat(exception).isInstanceOf(BusinessException.class);
+        assertThat(serviceRegistry.get(ServiceMetricsAspect.SERVICE_TIMER)
+                .tags("method", "getById", "exception", "none").timer().count()).isEqualTo(1);
+        assertThat(serviceRegistry.get(ServiceMetricsAspect.SERVICE_TIMER)
+                .tags("method", "save", "exception", "BusinessException").timer().count()).isEqualTo(1);
+    }
+}
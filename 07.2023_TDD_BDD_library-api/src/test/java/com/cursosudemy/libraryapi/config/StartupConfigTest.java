@@ -0,0 +1,98 @@
+package com.cursosudemy.libraryapi.config;
+
+import com.cursosudemy.libraryapi.api.resources.BookController;
+import com.cursosudemy.libraryapi.service.EmailService;
+import com.cursosudemy.libraryapi.service.ScheduleService;
+import com.cursosudemy.libraryapi.service.impl.BookServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class StartupConfigTest {
+
+    @MockBean
+    EmailService emailService;
+
+    @MockBean
+    JavaMailSender javaMailSender;
+
+    @Test
+    @DisplayName("Deve registrar o tempo de criação de cada bean sem o tempo das dependências")
+    public void beanStartupRecorderTest() throws Exception {
+        // cenario
+        BeanStartupRecorder recorder = new BeanStartupRecorder();
+
+        // ação (bookService is created while creating bookController)
+        recorder.postProcessBeforeInstantiation(BookController.class, "bookController");
+        recorder.postProcessBeforeInstantiation(BookServiceImpl.class, "bookService");
+        Thread.sleep(50);
+        recorder.postProcessAfterInitialization(new Object(), "bookService");
+        recorder.postProcessAfterInitialization(new Object(), "bookController");
+        recorder.postProcessAfterInitialization(new Object(), "objectOfFactoryBean");
+
+        // verificação
+        List<BeanStartupRecorder.BeanStartup> startups = recorder.getStartups();
+        assertThat(startups).extracting(BeanStartupRecorder.BeanStartup::getBeanName)
+                .containsExactly("bookService", "bookController");
+        assertThat(startups.get(0).getSelfMillis()).isGreaterThanOrEqualTo(50);
+        assertThat(startups.get(1).getTotalMillis()).isGreaterThanOrEqualTo(50);
+        assertThat(startups.get(1).getSelfMillis()).isLessThan(50);
+    }
+
+    @Test
+    @DisplayName("Deve manter os controllers e os beans agendados fora da inicialização preguiçosa")
+    public void lazyInitializationExcludeFilterTest() {
+        // cenario
+        LazyInitializationExcludeFilter filter = StartupConfig.eagerWebAndScheduledBeans();
+
+        // verificação
+        assertThat(filter.isExcluded("bookController", null, BookController.class)).isTrue();
+        assertThat(filter.isExcluded("scheduleService", null, ScheduleService.class)).isTrue();
+        assertThat(filter.isExcluded("bookService", null, BookServiceImpl.class)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve indicar pronto apenas depois da verificação do email")
+    public void mailCheckTest() {
+        // cenario
+        MailCheckHealthIndicator indicator = new MailCheckHealthIndicator(emailService, javaMailSender);
+        Status pending = indicator.health().getStatus();
+
+        // ação
+        indicator.check();
+
+        // verificação
+        assertThat(pending).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+        Mockito.verify(emailService).sendMails("Testando", MailCheckHealthIndicator.RECIPIENTS);
+    }
+
+    @Test
+    @DisplayName("Deve indicar falha quando o email de verificação não é enviado")
+    public void mailCheckFailedTest() {
+        // cenario
+        MailCheckHealthIndicator indicator = new MailCheckHealthIndicator(emailService, javaMailSender);
+        Mockito.doThrow(new MailSendException("connection refused"))
+                .when(emailService).sendMails(Mockito.anyString(), Mockito.anyList());
+
+        // ação
+        indicator.check();
+
+        // verificação
+        assertThat(indicator.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+}
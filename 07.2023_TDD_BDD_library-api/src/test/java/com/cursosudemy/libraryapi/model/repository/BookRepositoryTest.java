@@ -1,5 +1,6 @@
 package com.cursosudemy.libraryapi.model.repository;
 
+import com.cursosudemy.libraryapi.api.dto.BookDTO;
 import com.cursosudemy.libraryapi.model.entity.Book;
 
 import com.cursosudemy.libraryapi.service.EmailService;
@@ -13,9 +14,14 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static com.cursosudemy.libraryapi.model.repository.BookSpecifications.matching;
+import static org.assertj.core.api.Assertions.assertThat;
 
 // create a mini context of dependencies injection to run the tests
 @ExtendWith(SpringExtension.class)
@@ -113,6 +119,101 @@ public class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar somente os isbns já cadastrados")
+    public void findIsbnsInTest() {
+        //cenário
+        entityManager.persist(createNewBook("123"));
+        entityManager.persist(createNewBook("456"));
+
+        //ação
+        List<String> isbns = repository.findIsbnsIn(Arrays.asList("123", "789"));
+
+        //verificação
+        assertThat(isbns).containsExactly("123");
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros a partir do último id lido")
+    public void findByIdGreaterThanTest() {
+        //cenário
+        Book first = entityManager.persist(createNewBook("123"));
+        Book second = entityManager.persist(createNewBook("456"));
+        Book other = createNewBook("789");
+        other.setTitle("Outro livro");
+        entityManager.persist(other);
+
+        //ação
+        List<Book> books = repository.findAfter(matching(Book.builder().title("AVENTURAS").build()), first.getId(), 10);
+
+        //verificação
+        assertThat(books).containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("Deve buscar a partir do último id apenas pelos filtros informados")
+    public void findAfterBySuppliedFiltersTest() {
+        //cenário
+        Book withoutAuthor = createNewBook("123");
+        withoutAuthor.setAuthor(null);
+        entityManager.persist(withoutAuthor);
+        Book other = entityManager.persist(createNewBook("456"));
+
+        //ação
+        List<Book> byIsbn = repository.findAfter(matching(Book.builder().isbn("123").build()), 0L, 10);
+        List<Book> all = repository.findAfter(matching(new Book()), 0L, 10);
+
+        //verificação
+        assertThat(byIsbn).containsExactly(withoutAuthor);
+        assertThat(all).containsExactly(withoutAuthor, other);
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros filtrados projetados em ordem de id")
+    public void streamDtosTest() {
+        //cenário
+        Book first = entityManager.persist(createNewBook("123"));
+        Book second = entityManager.persist(createNewBook("456"));
+        Book other = createNewBook("789");
+        other.setTitle("Outro livro");
+        entityManager.persist(other);
+
+        //ação
+        List<BookDTO> books;
+        try (Stream<BookDTO> stream = repository.streamDtos(matching(Book.builder().title("AVENTURAS").build()))) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        //verificação
+        assertThat(books).extracting(BookDTO::getId).containsExactly(first.getId(), second.getId());
+        assertThat(books.get(0).getIsbn()).isEqualTo("123");
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros filtrados apenas pelos filtros informados")
+    public void streamDtosBySuppliedFiltersTest() {
+        //cenário
+        Book withoutAuthor = createNewBook("123");
+        withoutAuthor.setAuthor(null);
+        entityManager.persist(withoutAuthor);
+        Book other = entityManager.persist(createNewBook("456"));
+
+        //ação
+        List<BookDTO> byIsbn;
+        try (Stream<BookDTO> stream = repository.streamDtos(matching(Book.builder().isbn("123").build()))) {
+            byIsbn = stream.collect(Collectors.toList());
+        }
+        List<BookDTO> all;
+        try (Stream<BookDTO> stream = repository.streamDtos(matching(new Book()))) {
+            all = stream.collect(Collectors.toList());
+        }
+
+        //verificação
+        assertThat(byIsbn).extracting(BookDTO::getId).containsExactly(withoutAuthor.getId());
+        assertThat(byIsbn.get(0).getAuthor()).isNull();
+        assertThat(all).extracting(BookDTO::getId).containsExactly(withoutAuthor.getId(), other.getId());
+    }
+
     private Book createNewBook(String isbn) {
         return Book.builder().title("As aventuras").author("Fulano").isbn(isbn).build();
     }
@@ -1,9 +1,13 @@
 package com.cursosudemy.libraryapi.model.repository;
 
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.model.entity.Loan;
 import com.cursosudemy.libraryapi.service.EmailService;
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,20 +15,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.Query;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.cursosudemy.libraryapi.model.repository.LoanSpecifications.byIsbnOrCustomer;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.catchThrowable;
 
 // create a mini context of dependencies injection to run the tests
 @ExtendWith(SpringExtension.class)
 
 @ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.cursosudemy.libraryapi.model.repository.LoanRepositoryTest$CapturedStatements")
 
 // Indicates we are gonna do tests with JPA. It creates an instance an In Memory BD and after the tests delete
 // all data.
@@ -40,9 +55,52 @@ public class LoanRepositoryTest {
     @Autowired
     LoanRepository repository;
 
+    @Autowired
+    LoanArchiveRepository archiveRepository;
+
+    @Autowired
+    OverdueLoanRepository overdueLoanRepository;
+
     @MockBean
     EmailService emailService;
 
+    @Test
+    @DisplayName("Deve permitir apenas um empréstimo não devolvido por livro")
+    public void singleOpenLoanByBookTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+
+        entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+
+        //ação
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(
+                Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now()).build()));
+
+        //vefificação
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("UK_LOAN_OPEN_BOOK");
+    }
+
+    @Test
+    @DisplayName("Deve permitir emprestar novamente o livro devolvido")
+    public void loanReturnedBookTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+
+        Loan loan = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        loan.setReturned(true);
+        entityManager.flush();
+
+        //ação
+        Loan newLoan = repository.saveAndFlush(Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now()).build());
+
+        //vefificação
+        assertThat(newLoan.getId()).isNotNull();
+        assertThat(repository.existsByBookAndNotReturned(book)).isTrue();
+    }
+
     @Test
     @DisplayName("Deve verificar se existe empréstimo não devolvido para o livro")
     public void existsByBookAndNotReturned() {
@@ -81,7 +139,7 @@ public class LoanRepositoryTest {
         entityManager.persist(loan);
 
         //ação
-        Page<Loan> result = repository.findByBookIsbnOrCustomer("123", "Fulano", PageRequest.of(0, 10));
+        Page<Loan> result = repository.findAll(byIsbnOrCustomer("123", "Fulano"), PageRequest.of(0, 10));
 
         //verificação
         Assertions.assertThat(result.getContent()).hasSize(1);
@@ -106,7 +164,8 @@ public class LoanRepositoryTest {
         entityManager.persist(loan);
 
         //ação
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        overdueLoanRepository.insertOpenLoansUntil(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findOverdue();
 
         //verificação
         Assertions.assertThat(result).hasSize(1).contains(loan);
@@ -127,12 +186,249 @@ public class LoanRepositoryTest {
         entityManager.persist(loan);
 
         //ação
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        overdueLoanRepository.insertOpenLoansUntil(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findOverdue();
 
         //verificação
         Assertions.assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Deve filtrar apenas pelos filtros informados")
+    public void findBySuppliedFiltersTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        Book other = createNewBook("456");
+        entityManager.persist(other);
+        entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(other).customer("Ciclano").loanDate(LocalDate.now()).build());
+
+        //ação
+        Page<LoanDto> byCustomer = repository.findDtos(byIsbnOrCustomer(null, "Ciclano"), PageRequest.of(0, 10));
+        Page<LoanDto> byIsbn = repository.findDtos(byIsbnOrCustomer("123", ""), PageRequest.of(0, 10));
+        Page<LoanDto> all = repository.findDtos(byIsbnOrCustomer(null, null), PageRequest.of(0, 10));
+
+        //verificação
+        Assertions.assertThat(byCustomer.getContent()).extracting(LoanDto::getIsbn).containsExactly("456");
+        Assertions.assertThat(byIsbn.getContent()).extracting(LoanDto::getCustomer).containsExactly("Fulano");
+        Assertions.assertThat(all.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve usar os índices nas buscas por isbn e por cliente")
+    public void findBySuppliedFiltersPlanTest() {
+        //cenário
+        for (int i = 0; i < 200; i++) {
+            Book book = createNewBook("isbn-" + i);
+            entityManager.persist(book);
+            entityManager.persist(Loan.builder().book(book).customer("Cliente " + (i % 20)).loanDate(LocalDate.now()).build());
+        }
+        entityManager.flush();
+
+        //ação (the statements Hibernate generates for a single filter)
+        String byCustomer = explainGenerated(() -> repository.findDtos(byIsbnOrCustomer(null, "Cliente 7"),
+                PageRequest.of(0, 10)), "Cliente 7", 10);
+        String byIsbn = explainGenerated(() -> repository.findDtos(byIsbnOrCustomer("isbn-7", null),
+                PageRequest.of(0, 10)), "isbn-7", 10);
+
+        //verificação
+        Assertions.assertThat(byCustomer).contains("IDX_LOAN_CUSTOMER").doesNotContain("TABLESCAN");
+        Assertions.assertThat(byIsbn).contains("IDX_BOOK_ISBN").doesNotContain("TABLESCAN");
+    }
+
+    // the plan of the first select run by the query, with its parameters bound in order
+    private String explainGenerated(Runnable query, Object... parameters) {
+        CapturedStatements.STATEMENTS.clear();
+        query.run();
+        String sql = CapturedStatements.STATEMENTS.stream()
+                .filter(statement -> statement.startsWith("select"))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        Query explain = entityManager.getEntityManager().createNativeQuery("explain " + sql);
+        for (int i = 0; i < parameters.length; i++) {
+            explain.setParameter(i + 1, parameters[i]);
+        }
+        return String.valueOf(explain.getSingleResult()).toUpperCase();
+    }
+
+    // keeps the SQL generated by Hibernate (hibernate.session_factory.statement_inspector)
+    public static class CapturedStatements implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Test
+    @DisplayName("Deve buscar emprestimos e livros projetados em um único comando SQL")
+    public void findDtoByBookIsbnOrCustomerTest() {
+        //cenário
+        for (String isbn : new String[]{"123", "456", "789"}) {
+            Book book = createNewBook(isbn);
+            entityManager.persist(book);
+            entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        // entity query: one select for the loans plus one per eager book
+        statistics.clear();
+        Page<Loan> entities = repository.findAll(byIsbnOrCustomer("123", "Fulano"), PageRequest.of(0, 10));
+        long entityStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        //ação
+        statistics.clear();
+        Page<LoanDto> result = repository.findDtos(byIsbnOrCustomer("123", "Fulano"), PageRequest.of(0, 10));
+
+        //verificação
+        Assertions.assertThat(entities.getContent()).hasSize(3);
+        Assertions.assertThat(entityStatements).isEqualTo(4);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        Assertions.assertThat(result.getContent()).hasSize(3);
+        Assertions.assertThat(result.getContent()).extracting(dto -> dto.getBookDTO().getIsbn())
+                .containsExactlyInAnyOrder("123", "456", "789");
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve buscar os emprestimos de um livro projetados")
+    public void findDtoByBookIdTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        entityManager.persist(createNewBook("456"));
+
+        //ação
+        Page<LoanDto> result = repository.findDtoByBookId(book.getId(), PageRequest.of(0, 10));
+
+        //verificação
+        Assertions.assertThat(result.getContent()).hasSize(1);
+        Assertions.assertThat(result.getContent().get(0).getIsbn()).isEqualTo("123");
+        Assertions.assertThat(result.getContent().get(0).getCustomer()).isEqualTo("Fulano");
+    }
+
+    @Test
+    @DisplayName("Deve buscar emprestimos a partir do último id lido")
+    public void findDtoAfterTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        Loan first = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        Loan second = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        entityManager.persist(Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now()).build());
+
+        //ação
+        List<LoanDto> filtered = repository.findDtosAfter(byIsbnOrCustomer(null, "Fulano"), first.getId(), 10);
+        List<LoanDto> all = repository.findDtosAfter(byIsbnOrCustomer(null, null), 0L, 2);
+        // an empty filter (?isbn=) is not supplied, the same as in the offset pagination
+        List<LoanDto> emptyIsbn = repository.findDtosAfter(byIsbnOrCustomer("", null), first.getId(), 10);
+
+        //verificação
+        Assertions.assertThat(filtered).extracting(LoanDto::getId).containsExactly(second.getId());
+        Assertions.assertThat(all).extracting(LoanDto::getId).containsExactly(first.getId(), second.getId());
+        Assertions.assertThat(emptyIsbn).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os emprestimos filtrados projetados em ordem de id")
+    public void streamDtosTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        Book other = createNewBook("456");
+        entityManager.persist(other);
+        Loan first = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        Loan second = entityManager.persist(Loan.builder().book(other).customer("Ciclano").loanDate(LocalDate.now()).build());
+
+        //ação
+        List<LoanDto> byIsbn;
+        try (Stream<LoanDto> loans = repository.streamDtos(byIsbnOrCustomer("456", " "))) {
+            byIsbn = loans.collect(Collectors.toList());
+        }
+        List<LoanDto> all;
+        try (Stream<LoanDto> loans = repository.streamDtos(byIsbnOrCustomer(null, null))) {
+            all = loans.collect(Collectors.toList());
+        }
+
+        //verificação
+        Assertions.assertThat(byIsbn).extracting(LoanDto::getCustomer).containsExactly("Ciclano");
+        Assertions.assertThat(all).extracting(LoanDto::getId).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    @DisplayName("Deve mover para o arquivo os empréstimos devolvidos e buscá-los no histórico")
+    public void archiveAndFindHistoryTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        Loan old = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(100)).returned(true)
+                .returnDate(LocalDate.now().minusDays(95)).build());
+        Loan recent = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(10)).returned(true)
+                .returnDate(LocalDate.now().minusDays(5)).build());
+        Loan open = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(100)).build());
+
+        //ação
+        List<Long> ids = repository.findArchivableIds(LocalDate.now().minusDays(90), PageRequest.of(0, 10));
+        archiveRepository.copyFromLoans(ids, LocalDate.now());
+        repository.deleteByIdIn(ids);
+        entityManager.clear();
+
+        Page<Object[]> history = archiveRepository.findHistoryByBookIsbnOrCustomer(null, "Fulano", PageRequest.of(0, 10));
+
+        //vefificação
+        Assertions.assertThat(ids).containsExactly(old.getId());
+        Assertions.assertThat(repository.findById(old.getId())).isNotPresent();
+        Assertions.assertThat(archiveRepository.findById(old.getId()).get().getReturnDate())
+                .isEqualTo(LocalDate.now().minusDays(95));
+        Assertions.assertThat(history.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(history.getContent()).extracting(row -> ((Number) row[0]).longValue())
+                .containsExactly(old.getId(), recent.getId(), open.getId());
+    }
+
+    @Test
+    @DisplayName("Deve buscar todo o histórico quando nenhum filtro é informado")
+    public void findHistoryWithoutFiltersTest() {
+        //cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        Book other = createNewBook("456");
+        entityManager.persist(other);
+        Loan archived = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(100)).returned(true)
+                .returnDate(LocalDate.now().minusDays(95)).build());
+        Loan open = entityManager.persist(Loan.builder().book(other).customer("Ciclano")
+                .loanDate(LocalDate.now()).build());
+        archiveRepository.copyFromLoans(Arrays.asList(archived.getId()), LocalDate.now());
+        repository.deleteByIdIn(Arrays.asList(archived.getId()));
+        entityManager.clear();
+
+        //ação
+        Page<Object[]> all = archiveRepository.findHistoryByBookIsbnOrCustomer(null, null, PageRequest.of(0, 10));
+        Page<Object[]> byIsbn = archiveRepository.findHistoryByBookIsbnOrCustomer("123", null, PageRequest.of(0, 1));
+
+        //verificação
+        Assertions.assertThat(all.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(all.getContent()).extracting(row -> ((Number) row[0]).longValue())
+                .containsExactly(archived.getId(), open.getId());
+        Assertions.assertThat(byIsbn.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(byIsbn.getContent()).extracting(row -> (String) row[4]).containsExactly("123");
+    }
+
     private Book createNewBook(String isbn) {
         return Book.builder().title("As aventuras").author("Fulano").isbn(isbn).build();
     }
@@ -0,0 +1,145 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.config.ExecutionThreads;
+import com.cursosudemy.libraryapi.config.MailDispatcherProperties;
+import com.cursosudemy.libraryapi.service.impl.AsyncEmailServiceImpl;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.MimeMessage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncEmailServiceTest {
+
+    GreenMail greenMail;
+
+    MeterRegistry meterRegistry;
+
+    MailDispatcherProperties properties;
+
+    AsyncEmailServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        properties = new MailDispatcherProperties();
+        properties.setRecipientsPerMessage(2);
+        properties.setBackoffMillis(10);
+        properties.setShutdownTimeoutMillis(1000);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if(service != null) {
+            service.stop();
+        }
+        greenMail.stop();
+    }
+
+    @Test
+    @DisplayName("Deve enviar os emails em mensagens agrupadas por destinatários")
+    public void sendMailsTest() throws Exception {
+        // cenario
+        service = startService(localMailSender());
+
+        // ação
+        service.sendMails("Livro atrasado", Arrays.asList("a@email.com", "b@email.com", "c@email.com"));
+
+        // verificação
+        // two messages (2 + 1 recipients), one copy per recipient in the local server
+        assertThat(greenMail.waitForIncomingEmail(5000, 2)).isTrue();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(3);
+        assertThat(received[0].getFrom()[0].toString()).isEqualTo("mail@library-api.com");
+
+        service.stop();
+        assertThat(meterRegistry.get("mail.dispatcher.messages.sent").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve tentar enviar novamente quando o servidor falhar")
+    public void retrySendMailsTest() throws Exception {
+        // cenario
+        FailingMailSender mailSender = new FailingMailSender(1);
+        service = startService(mailSender);
+
+        // ação
+        service.sendMails("Livro atrasado", Arrays.asList("a@email.com"));
+
+        // verificação
+        assertThat(greenMail.waitForIncomingEmail(5000, 1)).isTrue();
+        assertThat(mailSender.attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve desistir do envio após o número máximo de tentativas")
+    public void giveUpSendMailsTest() throws Exception {
+        // cenario
+        properties.setMaxAttempts(2);
+        FailingMailSender mailSender = new FailingMailSender(Integer.MAX_VALUE);
+        service = startService(mailSender);
+
+        // ação
+        service.sendMails("Livro atrasado", Arrays.asList("a@email.com"));
+        service.stop();
+
+        // verificação
+        assertThat(mailSender.attempts.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("mail.dispatcher.messages.failed").counter().count()).isEqualTo(1);
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
+    private AsyncEmailServiceImpl startService(JavaMailSender mailSender) {
+        AsyncEmailServiceImpl emailService =
+                new AsyncEmailServiceImpl(mailSender, properties, new ExecutionThreads(ExecutionThreads.PLATFORM),
+                        meterRegistry, "mail@library-api.com");
+        emailService.start();
+        return emailService;
+    }
+
+    private JavaMailSender localMailSender() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        return mailSender;
+    }
+
+    // fails the first sends and then delivers to the local SMTP server
+    static class FailingMailSender extends JavaMailSenderImpl {
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final int failures;
+
+        FailingMailSender(int failures) {
+            this.failures = failures;
+            setHost("localhost");
+            setPort(ServerSetupTest.SMTP.getPort());
+        }
+
+        @Override
+        public void send(SimpleMailMessage... simpleMessages) {
+            if(attempts.incrementAndGet() <= failures) {
+                throw new MailSendException("connection refused");
+            }
+            super.send(simpleMessages);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookAvailabilityIndexTest {
+
+    BookAvailabilityIndex index;
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @BeforeEach
+    public void setUp() {
+        this.index = new BookAvailabilityIndex(bookRepository, loanRepository);
+    }
+
+    @Test
+    @DisplayName("Deve carregar os livros e os empréstimos em aberto da base")
+    public void loadTest() {
+        //cenario
+        Mockito.when(bookRepository.streamIds()).thenReturn(Stream.of(1L, 2L, 3L, 7L));
+        Mockito.when(loanRepository.streamOpenLoanBookIds()).thenReturn(Stream.of(2L));
+
+        //acao
+        index.load();
+
+        //verificacao
+        assertThat(index.isAvailable(1L)).isTrue();
+        assertThat(index.isAvailable(2L)).isFalse();
+        assertThat(index.findAvailableAfter(0L, 10)).containsExactly(1L, 3L, 7L);
+        assertThat(index.findAvailableAfter(1L, 2)).containsExactly(3L, 7L);
+    }
+
+    @Test
+    @DisplayName("Deve atualizar a disponibilidade ao emprestar e devolver um livro")
+    public void loanAndReturnTest() {
+        //cenario
+        index.addBook(1L);
+        index.addBook(2L);
+        Loan loan = Loan.builder().book(Book.builder().id(1L).build()).build();
+
+        //acao / verificacao
+        index.update(loan);
+        assertThat(index.isAvailable(1L)).isFalse();
+        assertThat(index.findAvailableAfter(0L, 10)).containsExactly(2L);
+
+        loan.setReturned(true);
+        index.update(loan);
+        assertThat(index.isAvailable(1L)).isTrue();
+
+        index.removeBook(2L);
+        assertThat(index.findAvailableAfter(0L, 10)).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve liberar o livro devolvido fora do índice ao confirmar na base")
+    public void loanReturnedOutsideTheIndexTest() {
+        //cenario
+        Book book = Book.builder().id(1L).build();
+        index.addBook(1L);
+        index.update(Loan.builder().book(book).build());
+
+        // returned by another instance, the index still sees the book as loaned
+        Mockito.when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(false);
+
+        //acao
+        boolean loaned = index.isLoaned(book);
+
+        //verificacao
+        assertThat(loaned).isFalse();
+        assertThat(index.isAvailable(1L)).isTrue();
+        assertThat(index.findAvailableAfter(0L, 10)).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve manter emprestado o livro com empréstimo em aberto na base")
+    public void loanConfirmedInTheDatabaseTest() {
+        //cenario
+        Book book = Book.builder().id(1L).build();
+        index.update(Loan.builder().book(book).build());
+        Mockito.when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(true);
+
+        //acao / verificacao
+        assertThat(index.isLoaned(book)).isTrue();
+        assertThat(index.isAvailable(1L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Não deve acessar a base para um livro disponível no índice")
+    public void availableBookNotCheckedTest() {
+        //acao / verificacao
+        assertThat(index.isLoaned(Book.builder().id(1L).build())).isFalse();
+        Mockito.verifyNoInteractions(loanRepository);
+    }
+}
@@ -0,0 +1,96 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookSearchIndexTest {
+
+    BookSearchIndex index;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        this.index = new BookSearchIndex(repository, 0.5);
+    }
+
+    @Test
+    @DisplayName("Deve carregar o índice com os livros da base")
+    public void loadTest() {
+        //cenario
+        Mockito.when(repository.streamSearchEntries()).thenReturn(Stream.of(
+                new Object[]{1L, "As aventuras", "Fulano"},
+                new Object[]{2L, "Dom Casmurro", "Machado de Assis"}));
+
+        //acao
+        index.load();
+
+        //verificacao
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("casmurro")).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Deve encontrar livros por parte da palavra, sem diferenciar maiúsculas e acentos")
+    public void searchSubstringTest() {
+        //cenario
+        index.index(createBook(1L, "Memórias Póstumas", "Machado de Assis"));
+        index.index(createBook(2L, "O Cortiço", "Aluísio Azevedo"));
+
+        //acao / verificacao
+        assertThat(index.search("POSTUM")).containsExactly(1L);
+        assertThat(index.search("corti")).containsExactly(2L);
+        assertThat(index.search("aluisio")).containsExactly(2L);
+        assertThat(index.search("ma")).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve tolerar erros de digitação e ordenar pela relevância")
+    public void searchRankedTest() {
+        //cenario
+        index.index(createBook(1L, "Aventuras no mar", "Artur"));
+        index.index(createBook(2L, "As aventuras", "Fulano"));
+        index.index(createBook(3L, "Poemas", "Ciclano"));
+
+        //acao / verificacao
+        assertThat(index.search("aventras")).containsExactly(1L, 2L);
+        assertThat(index.search("aventuras no mar")).containsExactly(1L, 2L);
+        assertThat(index.search("")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve reindexar o livro alterado")
+    public void reindexTest() {
+        //cenario
+        Book book = createBook(1L, "As aventuras", "Fulano");
+        index.index(book);
+
+        //acao
+        book.setTitle("Poemas");
+        index.index(book);
+
+        //verificacao
+        assertThat(index.search("aventuras")).isEmpty();
+        assertThat(index.search("poemas")).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    private Book createBook(Long id, String title, String author) {
+        return Book.builder().id(id).title(title).author(author).isbn(String.valueOf(id)).build();
+    }
+}
@@ -1,8 +1,10 @@
 package com.cursosudemy.libraryapi.service;
 
+import com.cursosudemy.libraryapi.api.dto.BookImportResultDTO;
 import com.cursosudemy.libraryapi.exception.BusinessException;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.model.repository.LoanRepository;
 import com.cursosudemy.libraryapi.service.impl.BookServiceImpl;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,7 +24,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -35,12 +37,22 @@ public class BookServiceTest {
 
     BookService service;
 
+    BookSearchIndex searchIndex;
+
     @MockBean
     BookRepository repository;
 
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    ChangeEventPublisher changeEvents;
+
     @BeforeEach
     public void setUp() {
-        this.service = new BookServiceImpl(repository);
+        this.searchIndex = new BookSearchIndex(repository, 0.5);
+        this.service = new BookServiceImpl(repository, searchIndex, new BookVersionIndex(100, 60),
+                new BookAvailabilityIndex(repository, loanRepository), changeEvents);
     }
 
     @Test
@@ -217,7 +229,8 @@ public class BookServiceTest {
 
         //canario
         String isbn = "1230";
-        Mockito.when(repository.findByIsbn(isbn)).thenReturn(Optional.of(Book.builder().id(1L).isbn(isbn).build()));
+        Mockito.when(repository.findIdByIsbn(isbn)).thenReturn(Optional.of(1L));
+        Mockito.when(repository.findById(1L)).thenReturn(Optional.of(Book.builder().id(1L).isbn(isbn).build()));
 
         //ação
         Optional<Book> book = service.getBookByIsbn(isbn);
@@ -227,10 +240,97 @@ public class BookServiceTest {
         assertThat(book.get().getId()).isEqualTo(1L);
         assertThat(book.get().getIsbn()).isEqualTo(isbn);
 
-        verify(repository, times(1)).findByIsbn(isbn);
+        verify(repository, times(1)).findIdByIsbn(isbn);
     }
 
 
+    @Test
+    @DisplayName("Deve importar livros em lote ignorando os inválidos e duplicados")
+    public void importBooksTest() {
+        //cenario
+        Book newBook = createValidBook();
+        Book repeatedBook = createValidBook();
+        Book existingBook = Book.builder().isbn("456").author("Fulano").title("As aventuras").build();
+        Book invalidBook = Book.builder().isbn("789").build();
+
+        Mockito.when(repository.findIsbnsIn(Mockito.anyCollection())).thenReturn(Arrays.asList("456"));
+        Mockito.when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.forEach(book -> book.setId(11L));
+            return books;
+        });
+
+        //acao
+        List<BookImportResultDTO> results =
+                service.importBooks(Arrays.asList(newBook, repeatedBook, existingBook, invalidBook));
+
+        //verificacao
+        assertThat(results).extracting(BookImportResultDTO::getStatus).containsExactly(
+                BookImportResultDTO.Status.CREATED,
+                BookImportResultDTO.Status.DUPLICATED,
+                BookImportResultDTO.Status.DUPLICATED,
+                BookImportResultDTO.Status.INVALID);
+        assertThat(results.get(0).getId()).isEqualTo(11L);
+        verify(repository, times(1)).findIsbnsIn(Mockito.anyCollection());
+        verify(repository, times(1)).saveAll(Arrays.asList(newBook));
+    }
+
+    @Test
+    @DisplayName("Deve pesquisar livros pelo índice e retornar na ordem de relevância")
+    public void searchBooksTest() {
+        //cenario
+        Book first = Book.builder().id(1L).isbn("001").title("Aventuras no mar").author("Artur").build();
+        Book second = Book.builder().id(2L).isbn("002").title("O mar").author("Fulano").build();
+        Book third = Book.builder().id(3L).isbn("003").title("Mar de aventuras").author("Ciclano").build();
+
+        Mockito.when(repository.existsByIsbn(Mockito.anyString())).thenReturn(false);
+        Mockito.when(repository.save(Mockito.any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        service.save(first);
+        service.save(second);
+        service.save(third);
+
+        Mockito.when(repository.findAllById(Arrays.asList(3L))).thenReturn(Arrays.asList(third));
+
+        //acao
+        Page<Book> result = service.search("mar de aventuras", PageRequest.of(0, 1));
+
+        //verificacao
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).containsExactly(third);
+    }
+
+    @Test
+    @DisplayName("Deve retirar do índice de pesquisa o livro excluído")
+    public void searchDeletedBookTest() {
+        //cenario
+        Book book = Book.builder().id(1L).isbn("001").title("As aventuras").author("Fulano").build();
+        Mockito.when(repository.save(book)).thenReturn(book);
+        service.save(book);
+
+        //acao
+        service.delete(book);
+
+        //verificacao
+        assertThat(service.search("aventuras", PageRequest.of(0, 10)).getTotalElements()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve guardar a versão do livro obtido e removê-la ao excluir o livro")
+    public void cachedVersionTest() {
+        //cenario
+        Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").version(3L).build();
+        Mockito.when(repository.findById(1L)).thenReturn(Optional.of(book));
+
+        //acao
+        service.getById(1L);
+
+        //verificacao
+        assertThat(service.getCachedVersion(1L)).contains(3L);
+
+        service.delete(book);
+        assertThat(service.getCachedVersion(1L)).isNotPresent();
+    }
+
     private Book createValidBook() {
         return Book.builder().isbn("123").author("Fulano").title("As aventuras").build();
     }
@@ -0,0 +1,185 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.config.ExecutionThreads;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.LateLoanNotification;
+import com.cursosudemy.libraryapi.model.entity.LateLoanScanCheckpoint;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.repository.BookRepository;
+import com.cursosudemy.libraryapi.model.repository.LateLoanNotificationRepository;
+import com.cursosudemy.libraryapi.model.repository.LateLoanScanCheckpointRepository;
+import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import com.cursosudemy.libraryapi.model.repository.OverdueLoanRepository;
+import com.cursosudemy.libraryapi.service.impl.LoanServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the partitions are scanned by other threads, so the data of the tests is committed (no test transaction)
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({LateLoanScanner.class, LoanServiceImpl.class, ExecutionThreads.class, OverdueLoanTracker.class,
+        BookAvailabilityIndex.class, ChangeEventPublisher.class})
+public class LateLoanScannerTest {
+
+    static final String[] CUSTOMERS = {"fulano@email.com", "ciclano@email.com", "beltrano@email.com"};
+
+    @Autowired
+    LateLoanScanner scanner;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    LateLoanNotificationRepository notificationRepository;
+
+    @Autowired
+    LateLoanScanCheckpointRepository checkpointRepository;
+
+    @Autowired
+    OverdueLoanRepository overdueLoanRepository;
+
+    @Autowired
+    OverdueLoanTracker overdueLoanTracker;
+
+    @MockBean
+    EmailService emailService;
+
+    @AfterEach
+    public void tearDown() {
+        notificationRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        overdueLoanRepository.deleteAll();
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve notificar uma única vez cada cliente com empréstimos atrasados em várias partições")
+    public void scanTest() {
+        //cenario
+        List<Loan> loans = createLateLoans(10);
+        LocalDate today = LocalDate.now();
+
+        //ação
+        scanner.scan(today);
+
+        //verificação
+        assertThat(sentEmails()).containsExactlyInAnyOrder(CUSTOMERS);
+        assertThat(notificationRepository.count()).isEqualTo(3);
+
+        List<LateLoanScanCheckpoint> checkpoints = checkpointRepository.findByScanDateOrderByPartitionIndex(today);
+        assertThat(checkpoints).hasSize(4);
+        assertThat(checkpoints).allMatch(LateLoanScanCheckpoint::getCompleted);
+        assertThat(checkpoints.get(3).getLastLoanId()).isEqualTo(loans.get(9).getId());
+    }
+
+    @Test
+    @DisplayName("Não deve enviar novamente os emails no mesmo dia")
+    public void scanTwiceTest() {
+        //cenario
+        createLateLoans(10);
+        LocalDate today = LocalDate.now();
+        scanner.scan(today);
+        Mockito.reset(emailService);
+
+        // a new scan from scratch, only the notifications of the day are kept
+        checkpointRepository.deleteAll();
+
+        //ação
+        scanner.scan(today);
+
+        //verificação
+        Mockito.verify(emailService, Mockito.never()).sendMails(Mockito.anyString(), Mockito.anyList());
+        assertThat(notificationRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve continuar a partir do checkpoint uma varredura interrompida")
+    public void resumeScanTest() throws Exception {
+        //cenario
+        List<Loan> loans = createLateLoans(6);
+        LocalDate today = LocalDate.now();
+
+        // the first three loans (one for each customer) were processed before the application stopped
+        checkpointRepository.save(LateLoanScanCheckpoint.builder()
+                .scanDate(today)
+                .partitionIndex(0)
+                .firstLoanId(loans.get(0).getId() - 1)
+                .lastLoanId(loans.get(5).getId())
+                .checkpointLoanId(loans.get(2).getId())
+                .completed(false)
+                .build());
+        notificationRepository.save(LateLoanNotification.builder()
+                .customerEmail(CUSTOMERS[0]).notificationDate(today).build());
+
+        //ação
+        scanner.resume().get();
+
+        //verificação
+        assertThat(sentEmails()).containsExactlyInAnyOrder(CUSTOMERS[1], CUSTOMERS[2]);
+        assertThat(checkpointRepository.findByScanDateOrderByPartitionIndex(today))
+                .allMatch(LateLoanScanCheckpoint::getCompleted);
+    }
+
+    @Test
+    @DisplayName("Não deve criar partições quando não há empréstimos atrasados")
+    public void scanWithoutLateLoansTest() {
+        //ação
+        scanner.scan(LocalDate.now());
+
+        //verificação
+        assertThat(checkpointRepository.count()).isZero();
+        Mockito.verify(emailService, Mockito.never()).sendMails(Mockito.anyString(), Mockito.anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sentEmails() {
+        ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(emailService, Mockito.atLeastOnce()).sendMails(Mockito.anyString(), captor.capture());
+
+        List<String> emails = new ArrayList<>();
+        captor.getAllValues().forEach(emails::addAll);
+        return emails;
+    }
+
+    // one late loan per book, the customers repeat every three loans
+    private List<Loan> createLateLoans(int count) {
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Book book = bookRepository.save(Book.builder().isbn("isbn-" + i).title("As aventuras").author("Fulano").build());
+            loans.add(loanRepository.save(Loan.builder()
+                    .book(book)
+                    .customer("Cliente " + i)
+                    .customerEmail(CUSTOMERS[i % CUSTOMERS.length])
+                    .loanDate(LocalDate.now().minusDays(10))
+                    .build()));
+        }
+
+        // saved by the repository, not by LoanService, so the overdue loans are refreshed here
+        overdueLoanTracker.refresh(LocalDate.now());
+        return loans;
+    }
+}
@@ -0,0 +1,119 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
+import com.cursosudemy.libraryapi.api.dto.LoanFilterDTO;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.repository.LoanArchiveRepository;
+import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import com.cursosudemy.libraryapi.service.impl.LoanServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({LoanArchiver.class, LoanServiceImpl.class, OverdueLoanTracker.class, BookAvailabilityIndex.class,
+        ChangeEventPublisher.class})
+@TestPropertySource(properties = {
+        "application.loans.archive.after-days=30",
+        "application.loans.archive.batch-size=2"})
+public class LoanArchiverTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanArchiver archiver;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    LoanArchiveRepository archiveRepository;
+
+    @MockBean
+    EmailService emailService;
+
+    @Test
+    @DisplayName("Deve arquivar em lotes os empréstimos devolvidos há mais dias que o configurado")
+    public void archiveTest() {
+        //cenario
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 5; i++) {
+            Book book = entityManager.persist(createNewBook("old-" + i));
+            entityManager.persist(createLoan(book, today.minusDays(40), true, today.minusDays(35)));
+        }
+        Book recentBook = entityManager.persist(createNewBook("recent"));
+        entityManager.persist(createLoan(recentBook, today.minusDays(10), true, today.minusDays(5)));
+        Book openBook = entityManager.persist(createNewBook("open"));
+        entityManager.persist(createLoan(openBook, today.minusDays(40), null, null));
+
+        // returned before the return date was kept, the loan date is used
+        Book legacyBook = entityManager.persist(createNewBook("legacy"));
+        entityManager.persist(createLoan(legacyBook, today.minusDays(40), true, null));
+
+        //ação
+        int archived = archiver.archive(today);
+
+        //verificação
+        assertThat(archived).isEqualTo(6);
+        assertThat(archiveRepository.count()).isEqualTo(6);
+        assertThat(loanRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve buscar o histórico completo dos empréstimos, incluindo os arquivados")
+    public void findDtosWithHistoryTest() {
+        //cenario
+        LocalDate today = LocalDate.now();
+        Book book = entityManager.persist(createNewBook("123"));
+        entityManager.persist(createLoan(book, today.minusDays(60), true, today.minusDays(55)));
+        entityManager.persist(createLoan(book, today.minusDays(2), null, null));
+        archiver.archive(today);
+
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn("123").build();
+
+        //ação
+        Page<LoanDto> hot = loanService.findDtos(filter, PageRequest.of(0, 10));
+        Page<LoanDto> history = loanService.findDtosWithHistory(filter, PageRequest.of(0, 10));
+
+        //verificação
+        assertThat(hot.getTotalElements()).isEqualTo(1);
+        assertThat(history.getTotalElements()).isEqualTo(2);
+        assertThat(history.getContent()).allMatch(loan -> loan.getBookDTO().getIsbn().equals("123"));
+    }
+
+    private Loan createLoan(Book book, LocalDate loanDate, Boolean returned, LocalDate returnDate) {
+        return Loan.builder()
+                .book(book)
+                .customer("Fulano")
+                .customerEmail("fulano@email.com")
+                .loanDate(loanDate)
+                .returned(returned)
+                .returnDate(returnDate)
+                .build();
+    }
+
+    private Book createNewBook(String isbn) {
+        return Book.builder().title("As aventuras").author("Fulano").isbn(isbn).build();
+    }
+}
@@ -1,10 +1,16 @@
 package com.cursosudemy.libraryapi.service;
 
+import com.cursosudemy.libraryapi.api.dto.LoanDto;
 import com.cursosudemy.libraryapi.api.dto.LoanFilterDTO;
 import com.cursosudemy.libraryapi.exception.BusinessException;
 import com.cursosudemy.libraryapi.model.entity.Book;
 import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.model.repository.LoanArchiveRepository;
 import com.cursosudemy.libraryapi.model.repository.LoanRepository;
+import com.cursosudemy.libraryapi.service.BookAvailabilityIndex;
+import com.cursosudemy.libraryapi.service.ChangeEventPublisher;
+import com.cursosudemy.libraryapi.service.OverdueLoanTracker;
 import com.cursosudemy.libraryapi.service.impl.LoanServiceImpl;
 import org.assertj.core.api.Assert;
 import org.assertj.core.api.Assertions;
@@ -15,17 +21,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -39,11 +51,27 @@ public class LoanServiceTest {
     @MockBean
     private LoanRepository repository;
 
+    @MockBean
+    private LoanArchiveRepository archiveRepository;
+
+    @MockBean
+    private OverdueLoanTracker overdueLoanTracker;
+
+    @MockBean
+    private BookAvailabilityIndex availabilityIndex;
+
+    @MockBean
+    private ChangeEventPublisher changeEvents;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     private LoanService service;
 
     @BeforeEach
     public void setUp() {
-        this.service = new LoanServiceImpl(repository);
+        this.service = new LoanServiceImpl(repository, archiveRepository, overdueLoanTracker, availabilityIndex,
+                changeEvents, transactionManager, 16);
     }
 
 
@@ -68,7 +96,6 @@ public class LoanServiceTest {
                 .book(book)
                 .build();
 
-        Mockito.when(repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(false);
         Mockito.when(repository.save(savingLoan)).thenReturn(savedLoan);
 
         //ação
@@ -79,6 +106,7 @@ public class LoanServiceTest {
         assertThat(loan.getBook().getId()).isEqualTo(savedLoan.getBook().getId());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+        Mockito.verify(overdueLoanTracker).added(savedLoan);
     }
 
 
@@ -95,8 +123,9 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
 
-        Mockito.when(repository.existsByBookAndNotReturned(savingLoan.getBook()))
-                .thenReturn(true);
+        // the unique index of the open loans rejects the insert
+        Mockito.when(repository.save(savingLoan)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Unique index or primary key violation: \"PUBLIC.UK_LOAN_OPEN_BOOK ON PUBLIC.LOAN(OPEN_BOOK_ID) VALUES 1\"")));
 
         //ação
         Throwable exception =  catchThrowable(() -> service.save(savingLoan));
@@ -105,7 +134,40 @@ public class LoanServiceTest {
         assertThat(exception).isInstanceOf(BusinessException.class)
                 .hasMessage("Book already loaned");
 
-        Mockito.verify(repository, Mockito.never()).save(savingLoan);
+        Mockito.verify(repository, Mockito.never()).existsByBookAndNotReturned(book);
+        Mockito.verify(availabilityIndex).update(savingLoan);
+    }
+
+    @Test
+    @DisplayName("Deve recusar sem salvar o empréstimo de um livro emprestado segundo o índice")
+    public void unavailableBookSavedTest() {
+        //cenario
+        Loan savingLoan = createLoan();
+        Mockito.when(availabilityIndex.isLoaned(savingLoan.getBook())).thenReturn(true);
+
+        //ação
+        Throwable exception = catchThrowable(() -> service.save(savingLoan));
+
+        //verificação
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Book already loaned");
+        Mockito.verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Deve propagar as outras violações de integridade ao salvar um empréstimo")
+    public void saveLoanIntegrityViolationTest() {
+        //cenario
+        Loan savingLoan = createLoan();
+
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Referential integrity constraint violation: \"FK_LOAN_BOOK\""));
+        Mockito.when(repository.save(savingLoan)).thenThrow(violation);
+
+        //ação
+        Throwable exception =  catchThrowable(() -> service.save(savingLoan));
+
+        //verificação
+        assertThat(exception).isSameAs(violation);
     }
 
     @Test
@@ -149,6 +211,8 @@ public class LoanServiceTest {
        //verificação
         Assertions.assertThat(updatedLoan.getReturned()).isTrue();
         Mockito.verify(repository).save(loan);
+        Mockito.verify(overdueLoanTracker).updated(loan);
+        Mockito.verify(changeEvents).loan(OutboxEvent.Type.RETURNED, loan);
     }
 
     @Test
@@ -165,9 +229,8 @@ public class LoanServiceTest {
 
         Page<Loan> page  =  new PageImpl<Loan>(loanList, pageRequest, loanList.size());
 
-        Mockito.when(repository.findByBookIsbnOrCustomer(
-                Mockito.anyString(),
-                Mockito.anyString(),
+        Mockito.when(repository.findAll(
+                Mockito.<Specification<Loan>>any(),
                 Mockito.any(PageRequest.class)
 
                 )).thenReturn(page);
@@ -182,6 +245,42 @@ public class LoanServiceTest {
         AssertionsForClassTypes.assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Deve filtrar emprestimos projetados pelas propriedades")
+    public void findLoanDtosTest() {
+        // cenario
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().customer("Fulano").isbn("321").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        List<LoanDto> loanList = Arrays.asList(new LoanDto(1L, "Fulano", null, 1L, "321", "As aventuras", "Artur"));
+
+        Mockito.when(repository.findDtos(Mockito.<Specification<Loan>>any(), Mockito.eq(pageRequest)))
+                .thenReturn(new PageImpl<LoanDto>(loanList, pageRequest, loanList.size()));
+
+        // ação
+        Page<LoanDto> result = service.findDtos(loanFilterDTO, pageRequest);
+
+        // verificação
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent()).isEqualTo(loanList);
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os emprestimos buscados pelo filtro")
+    public void streamDtosTest() {
+        // cenario
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().customer("Fulano").isbn(" ").build();
+        LoanDto loanDto = new LoanDto(1L, "Fulano", null, 1L, "321", "As aventuras", "Artur");
+        Mockito.when(repository.streamDtos(Mockito.<Specification<Loan>>any())).thenReturn(Stream.of(loanDto));
+
+        List<LoanDto> loans = new ArrayList<>();
+
+        // ação
+        service.streamDtos(loanFilterDTO, loans::add);
+
+        // verificação
+        assertThat(loans).containsExactly(loanDto);
+    }
+
     public Loan createLoan() {
         Book book = Book.builder().id(1L).build();
         String customer = "Fulano";
@@ -0,0 +1,176 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.api.dto.ChangeEventBatchDTO;
+import com.cursosudemy.libraryapi.api.dto.ChangeEventDTO;
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.OutboxEvent;
+import com.cursosudemy.libraryapi.model.repository.OutboxEventRepository;
+import com.cursosudemy.libraryapi.model.repository.PublishedEventRepository;
+import com.cursosudemy.libraryapi.service.impl.BookServiceImpl;
+import com.cursosudemy.libraryapi.service.impl.EventTopicSink;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({BookServiceImpl.class, BookSearchIndex.class, BookVersionIndex.class, BookAvailabilityIndex.class,
+        ChangeEventPublisher.class, OutboxRelay.class, EventTopicSink.class})
+@TestPropertySource(properties = "application.events.relay.batch-size=2")
+public class OutboxRelayTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    OutboxRelay relay;
+
+    @Autowired
+    EventTopicSink topic;
+
+    @Autowired
+    OutboxEventRepository outboxRepository;
+
+    @Autowired
+    ChangeEventPublisher changeEvents;
+
+    @Autowired
+    PublishedEventRepository publishedEventRepository;
+
+    @MockBean
+    EmailService emailService;
+
+    @Test
+    @DisplayName("Deve publicar em lotes e em ordem os eventos de alteração dos livros")
+    public void relayTest() {
+        //cenario
+        Book book = bookService.save(Book.builder().isbn("001").title("As aventuras").author("Artur").build());
+        book.setTitle("As novas aventuras");
+        bookService.update(book);
+        bookService.delete(book);
+
+        //ação
+        int relayed = relay.relay();
+
+        //verificação
+        assertThat(relayed).isEqualTo(3);
+        assertThat(outboxRepository.count()).isZero();
+
+        ChangeEventBatchDTO batch = topic.read(0, 10);
+        assertThat(batch.getEvents()).extracting(ChangeEventDTO::getType)
+                .containsExactly(OutboxEvent.Type.CREATED, OutboxEvent.Type.UPDATED, OutboxEvent.Type.DELETED);
+        assertThat(batch.getEvents()).allMatch(event -> book.getId().equals(event.getAggregateId()));
+        assertThat(batch.getEvents().get(1).getPayload()).contains("\"title\":\"As novas aventuras\"");
+        assertThat(batch.getEvents()).extracting(ChangeEventDTO::getOffset)
+                .isSorted()
+                .allMatch(offset -> offset >= topic.firstOffset());
+        assertThat(batch.getNextOffset()).isEqualTo(batch.getEvents().get(2).getOffset() + 1);
+        assertThat(batch.getNextOffset()).isEqualTo(topic.endOffset());
+        assertThat(topic.read(batch.getNextOffset(), 10).getEvents()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve manter os eventos publicados e seus offsets em outra instância do tópico")
+    public void topicKeptInTheDatabaseTest() {
+        //cenario
+        outboxRepository.save(event());
+        OutboxEvent second = outboxRepository.save(event());
+        relay.relay();
+        List<ChangeEventDTO> published = topic.read(0, 10).getEvents();
+
+        //ação
+        // another instance, or the same one after a restart
+        EventTopicSink otherTopic = new EventTopicSink(publishedEventRepository, 10);
+        ChangeEventBatchDTO batch = otherTopic.read(published.get(1).getOffset(), 10);
+
+        //verificação
+        assertThat(batch.getEvents()).extracting(ChangeEventDTO::getId).containsExactly(second.getId());
+        assertThat(otherTopic.firstOffset()).isEqualTo(published.get(0).getOffset());
+        assertThat(otherTopic.endOffset()).isEqualTo(topic.endOffset());
+    }
+
+    @Test
+    @DisplayName("Não deve duplicar no tópico um evento publicado novamente")
+    public void publishTwiceTest() {
+        //cenario
+        OutboxEvent event = outboxRepository.save(event());
+
+        //ação
+        topic.publish(Arrays.asList(event));
+        topic.publish(Arrays.asList(event));
+
+        //verificação
+        assertThat(publishedEventRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve dar ao evento publicado depois um offset após os já lidos, mesmo com id menor")
+    public void lateEventOffsetTest() {
+        //cenario
+        // the first event is committed after the second one, which is already relayed and read
+        OutboxEvent late = outboxRepository.save(event());
+        OutboxEvent early = outboxRepository.save(event());
+        topic.publish(Arrays.asList(early));
+        long consumerOffset = topic.read(0, 10).getNextOffset();
+
+        //ação
+        topic.publish(Arrays.asList(late));
+
+        //verificação
+        ChangeEventBatchDTO batch = topic.read(consumerOffset, 10);
+        assertThat(batch.getEvents()).extracting(ChangeEventDTO::getId).containsExactly(late.getId());
+        assertThat(batch.getEvents().get(0).getOffset()).isEqualTo(consumerOffset);
+    }
+
+    @Test
+    @DisplayName("Deve registrar eventos somente dentro da transação da alteração")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recordOutsideTransactionTest() {
+        Throwable exception = catchThrowable(() -> changeEvents.book(OutboxEvent.Type.CREATED,
+                Book.builder().id(1L).isbn("001").build()));
+
+        assertThat(exception).isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    @Test
+    @DisplayName("Deve manter no tópico somente os últimos eventos")
+    public void topicRetentionTest() {
+        //cenario
+        EventTopicSink smallTopic = new EventTopicSink(publishedEventRepository, 2);
+        List<OutboxEvent> events = outboxRepository.saveAll(Arrays.asList(event(), event(), event()));
+
+        //ação
+        smallTopic.publish(events);
+
+        //verificação
+        ChangeEventBatchDTO batch = smallTopic.read(0, 10);
+        assertThat(batch.getEvents()).extracting(ChangeEventDTO::getId)
+                .containsExactly(events.get(1).getId(), events.get(2).getId());
+        assertThat(batch.getEvents()).extracting(ChangeEventDTO::getOffset)
+                .containsExactly(smallTopic.endOffset() - 2, smallTopic.endOffset() - 1);
+        assertThat(batch.getNextOffset()).isEqualTo(smallTopic.endOffset());
+        assertThat(smallTopic.firstOffset()).isEqualTo(smallTopic.endOffset() - 2);
+    }
+
+    private OutboxEvent event() {
+        return OutboxEvent.builder().aggregateType("book").aggregateId(1L)
+                .type(OutboxEvent.Type.CREATED).payload("{}").build();
+    }
+}
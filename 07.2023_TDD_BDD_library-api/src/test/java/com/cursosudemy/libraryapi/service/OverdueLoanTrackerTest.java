@@ -0,0 +1,117 @@
+package com.cursosudemy.libraryapi.service;
+
+import com.cursosudemy.libraryapi.model.entity.Book;
+import com.cursosudemy.libraryapi.model.entity.Loan;
+import com.cursosudemy.libraryapi.model.entity.OverdueLoan;
+import com.cursosudemy.libraryapi.model.repository.OverdueLoanRepository;
+import com.cursosudemy.libraryapi.service.impl.LoanServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({OverdueLoanTracker.class, LoanServiceImpl.class, BookAvailabilityIndex.class,
+        ChangeEventPublisher.class})
+@TestPropertySource(properties = "application.loans.loan-days=7")
+public class OverdueLoanTrackerTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    OverdueLoanTracker tracker;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    OverdueLoanRepository overdueLoanRepository;
+
+    @MockBean
+    EmailService emailService;
+
+    @Test
+    @DisplayName("Deve atualizar os empréstimos atrasados com os dias de empréstimo configurados")
+    public void refreshTest() {
+        //cenario
+        LocalDate today = LocalDate.now();
+        Loan late = persistLoan("001", today.minusDays(7), null);
+        persistLoan("002", today.minusDays(6), null);
+        persistLoan("003", today.minusDays(30), true);
+
+        //ação
+        tracker.refresh(today);
+
+        //verificação
+        assertThat(overdueLoanRepository.findAll()).extracting(OverdueLoan::getId).containsExactly(late.getId());
+        assertThat(loanService.getAllLateLoans()).containsExactly(late);
+    }
+
+    @Test
+    @DisplayName("Deve incluir somente os empréstimos dos dias passados desde a última atualização")
+    public void rollTest() {
+        //cenario
+        LocalDate today = LocalDate.now();
+        tracker.refresh(today.minusDays(1));
+
+        // saved by the repository after the refresh, the roll only reads the day it passed
+        Loan due = persistLoan("001", today.minusDays(7), null);
+        persistLoan("002", today.minusDays(8), null);
+
+        //ação
+        tracker.roll(today);
+        tracker.roll(today);
+
+        //verificação
+        assertThat(overdueLoanRepository.findAll()).extracting(OverdueLoan::getId).containsExactly(due.getId());
+    }
+
+    @Test
+    @DisplayName("Deve manter os empréstimos atrasados ao salvar e devolver empréstimos")
+    public void saveAndReturnTest() {
+        //cenario
+        LocalDate today = LocalDate.now();
+        tracker.refresh(today);
+
+        //ação
+        Loan late = loanService.save(Loan.builder().book(persistBook("001")).customer("Fulano")
+                .customerEmail("fulano@email.com").loanDate(today.minusDays(10)).build());
+        Loan onTime = loanService.save(Loan.builder().book(persistBook("002")).customer("Fulano")
+                .loanDate(today).build());
+
+        //verificação
+        assertThat(loanService.getFirstLateLoanId()).contains(late.getId());
+        assertThat(overdueLoanRepository.existsById(onTime.getId())).isFalse();
+
+        late.setReturned(true);
+        loanService.update(late);
+        assertThat(overdueLoanRepository.count()).isZero();
+    }
+
+    private Loan persistLoan(String isbn, LocalDate loanDate, Boolean returned) {
+        return entityManager.persistFlushFind(Loan.builder()
+                .book(persistBook(isbn))
+                .customer("Fulano")
+                .loanDate(loanDate)
+                .returned(returned)
+                .build());
+    }
+
+    private Book persistBook(String isbn) {
+        return entityManager.persist(Book.builder().isbn(isbn).title("As aventuras").author("Artur").build());
+    }
+}